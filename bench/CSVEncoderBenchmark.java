@@ -0,0 +1,117 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Micro-benchmark of {@link CSVEncoder} against the regex escaping {@link CSVWriter} used before
+ * it (copied below), on random rows shaped like the export ones: keys, titles with commas, quotes
+ * and line breaks, non-ASCII names. Both write to a null stream; the output of the two is compared
+ * once before timing.
+ * <p>
+ * Usage, after compiling {@code src} to {@code out}:
+ * {@code javac -cp out -d out bench/CSVEncoderBenchmark.java && java -cp out CSVEncoderBenchmark [rows] [rounds]}
+ */
+public class CSVEncoderBenchmark {
+
+    private static final String[] WORDS = {"graph", "query", "data", "neural", "network", "stream", "index",
+            "M\u00fcller", "\u00c5ngstr\u00f6m", "G\u00f6del", "\u30c7\u30fc\u30bf", "learning", "optimization", "\"robust\"", "O'Brien", "x,y"};
+
+    public static void main(String[] args) throws IOException {
+        int numRows = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int numRounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        List<List<String>> rows = randomRows(numRows, new Random(42));
+
+        byte[] legacy = writeLegacy(rows, new ByteArrayOutputStream()).toByteArray();
+        byte[] encoded = writeEncoder(rows, new ByteArrayOutputStream()).toByteArray();
+        if (!Arrays.equals(legacy, encoded))
+            throw new IllegalStateException("CSVEncoder and the legacy escaping differ");
+        System.out.format("%d rows, %.1f MB of CSV, %d rounds\n", numRows, legacy.length / 1e6, numRounds);
+
+        // alternated, so both run with the same JIT and GC state
+        long[] legacyNanos = new long[numRounds];
+        long[] encoderNanos = new long[numRounds];
+        for (int round = -2; round < numRounds; round++) {
+            long start = System.nanoTime();
+            writeLegacy(rows, OutputStream.nullOutputStream());
+            long legacyTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            writeEncoder(rows, OutputStream.nullOutputStream());
+            long encoderTime = System.nanoTime() - start;
+            // the first two rounds are warm-up
+            if (round >= 0) {
+                legacyNanos[round] = legacyTime;
+                encoderNanos[round] = encoderTime;
+            }
+        }
+        report("legacy (regex + PrintWriter)", legacyNanos, legacy.length);
+        report("CSVEncoder", encoderNanos, legacy.length);
+    }
+
+    private static void report(String name, long[] nanos, long numBytes) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        long median = sorted[sorted.length / 2];
+        System.out.format("%-30s median %7.1f ms, best %7.1f ms, %6.1f MB/s\n",
+                name, median / 1e6, sorted[0] / 1e6, numBytes / 1e6 / (median / 1e9));
+    }
+
+    private static <T extends OutputStream> T writeEncoder(List<List<String>> rows, T out) throws IOException {
+        CSVEncoder encoder = new CSVEncoder(out);
+        for (List<String> row : rows)
+            encoder.writeRow(row);
+        encoder.flush();
+        return out;
+    }
+
+    // CSVWriter#convertToCSV before CSVEncoder
+    private static <T extends OutputStream> T writeLegacy(List<List<String>> rows, T out) {
+        PrintWriter pw = new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        rows.stream()
+                .map(CSVEncoderBenchmark::convertToCSV)
+                .forEach(pw::println);
+        pw.flush();
+        return out;
+    }
+
+    private static String convertToCSV(List<String> data) {
+        String[] array = data.toArray(new String[0]);
+        return Stream.of(array)
+                .map(CSVEncoderBenchmark::escapeSpecialCharacters)
+                .collect(Collectors.joining(","));
+    }
+
+    private static String escapeSpecialCharacters(String data) {
+        String escapedData = data.replaceAll("\\R", " ");
+        if (data.contains(",") || data.contains("\"") || data.contains("'")) {
+            data = data.replace("\"", "\"\"");
+            escapedData = "\"" + data + "\"";
+        }
+        return escapedData;
+    }
+
+    // publications.csv-like rows: key, tag, title, id, year, pages, ee
+    private static List<List<String>> randomRows(int numRows, Random random) {
+        List<List<String>> rows = new ArrayList<>(numRows);
+        for (int i = 0; i < numRows; i++) {
+            StringBuilder title = new StringBuilder();
+            for (int j = 3 + random.nextInt(10); j > 0; j--) {
+                title.append(WORDS[random.nextInt(WORDS.length)]);
+                title.append(random.nextInt(40) == 0 ? "\n" : " ");
+            }
+            rows.add(List.of("conf/c" + random.nextInt(5000) + "/P" + i, "inproceedings", title.toString().trim(),
+                    String.valueOf(random.nextInt(Integer.MAX_VALUE)), String.valueOf(1970 + random.nextInt(55)),
+                    (1 + random.nextInt(300)) + "-" + (301 + random.nextInt(300)),
+                    "https://doi.org/10.1145/" + random.nextInt(1_000_000)));
+        }
+        return rows;
+    }
+}
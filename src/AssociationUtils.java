@@ -57,7 +57,20 @@ public abstract class AssociationUtils {
     }
 
     public static Association getRandomAssociation() {
+        return getRandomAssociation(random);
+    }
+
+    public static Association getRandomAssociation(Random random) {
         int i = random.nextInt(associations.size());
         return associations.get(i);
     }
+
+    /**
+     * Pseudo-random association that only depends on the given author PID, so that successive
+     * exports of the same author agree (see {@link ExportDelta}).
+     */
+    public static Association getAssociationOf(String pid) {
+        int i = Math.floorMod(pid.hashCode() * 0x9E3779B9, associations.size());
+        return associations.get(i);
+    }
 }
@@ -0,0 +1,222 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Output stream handing the bytes to a writer thread of its own, which (optionally gzips and)
+ * writes them through a {@link FileChannel}. The producer only pays for a copy of the chunk, so
+ * several output files are compressed and written at the same time while the export keeps going.
+ * <p>
+ * At most {@link #MAX_PENDING_CHUNKS} chunks wait for the writer, a producer faster than the disk
+ * blocks instead of filling the heap.
+ * <p>
+ * {@link #checkpoint()} makes everything written so far durable and returns the file length, a
+ * stream reopened at that length appends to it. Gzipped files are a sequence of gzip members
+ * then, one per checkpoint, which gzip readers decompress as a single stream.
+ */
+public class AsyncFileOutputStream extends OutputStream {
+
+    private static final int MAX_PENDING_CHUNKS = 8;
+    private static final byte[] END = new byte[0];
+    private static final byte[] CHECKPOINT = new byte[0];
+
+    private final Path path;
+    private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(MAX_PENDING_CHUNKS);
+    // file length at each checkpoint, -1 if the writer failed
+    private final BlockingQueue<Long> checkpoints = new ArrayBlockingQueue<>(1);
+    private final Thread writer;
+
+    // whatever stopped the writer, a RuntimeException (e.g. of the deflater) as well as an IOException
+    private volatile Throwable failure = null;
+    private volatile long bytesOnDisk = 0;
+    private boolean closed = false;
+
+    public AsyncFileOutputStream(Path path, boolean gzip) throws IOException {
+        this(path, gzip, 0);
+    }
+
+    /**
+     * @param resumeOffset Length the file is truncated to before appending, as returned by a
+     *                     {@link #checkpoint()} of a previous stream on the same file.
+     */
+    public AsyncFileOutputStream(Path path, boolean gzip, long resumeOffset) throws IOException {
+        this.path = path;
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (resumeOffset > channel.size()) {
+            channel.close();
+            throw new IOException(path + " is shorter than its checkpoint (" + resumeOffset + " bytes)");
+        }
+        channel.truncate(resumeOffset);
+        channel.position(resumeOffset);
+        this.bytesOnDisk = resumeOffset;
+        this.writer = new Thread(() -> drain(channel, gzip, resumeOffset == 0), "csv-writer-" + path.getFileName());
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed)
+            throw new IOException(path + " already closed");
+        checkFailure();
+        if (len == 0)
+            return;
+        byte[] chunk = new byte[len];
+        System.arraycopy(b, off, chunk, 0, len);
+        enqueue(chunk);
+    }
+
+    /**
+     * @return The number of bytes that reached the file so far (i.e. after compression).
+     */
+    public long getBytesOnDisk() {
+        return bytesOnDisk;
+    }
+
+    /**
+     * Waits for the writer to write (and compress) every chunk written so far and forces them to
+     * the disk.
+     *
+     * @return The length of the file.
+     */
+    public long checkpoint() throws IOException {
+        if (closed)
+            throw new IOException(path + " already closed");
+        checkFailure();
+        enqueue(CHECKPOINT);
+        long length;
+        try {
+            length = checkpoints.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while checkpointing " + path);
+        }
+        checkFailure();
+        return length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        enqueue(END);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while closing " + path);
+        }
+        checkFailure();
+    }
+
+    private void enqueue(byte[] chunk) throws IOException {
+        try {
+            chunks.put(chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while writing " + path);
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null)
+            throw new IOException("cannot write " + path, failure);
+    }
+
+    private void drain(FileChannel channel, boolean gzip, boolean newFile) {
+        boolean ended = false;
+        OutputStream channelOut = new ChannelOutputStream(channel);
+        OutputStream out = null;
+        try (channel) {
+            // a new gzip file gets its (possibly empty) member right away, so that it is never
+            // an empty, invalid gzip file; after a checkpoint the next member starts with the data
+            if (!gzip)
+                out = channelOut;
+            else if (newFile)
+                out = new BestSpeedGZIPOutputStream(channelOut);
+
+            byte[] chunk;
+            while ((chunk = chunks.take()) != END) {
+                if (chunk == CHECKPOINT) {
+                    if (gzip && out != null) {
+                        ((GZIPOutputStream) out).finish();
+                        out = null;
+                    }
+                    channel.force(false);
+                    checkpoints.put(bytesOnDisk);
+                    continue;
+                }
+                if (out == null)
+                    out = new BestSpeedGZIPOutputStream(channelOut);
+                out.write(chunk);
+            }
+            ended = true;
+            if (gzip && out != null)
+                ((GZIPOutputStream) out).finish();
+        } catch (InterruptedException e) {
+            failure = new InterruptedIOException("writer of " + path + " interrupted");
+        } catch (Throwable e) {
+            failure = e;
+            // a checkpoint waiting for this writer fails too
+            checkpoints.offer(-1L);
+            // keep unblocking the producer until it closes the stream, it fails on its next write
+            if (!ended)
+                discardUntilEnd();
+        }
+    }
+
+    private void discardUntilEnd() {
+        try {
+            byte[] chunk;
+            while ((chunk = chunks.take()) != END) {
+                // dropped, a pending checkpoint fails
+                if (chunk == CHECKPOINT)
+                    checkpoints.put(-1L);
+            }
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    private final class ChannelOutputStream extends OutputStream {
+        private final FileChannel channel;
+
+        private ChannelOutputStream(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            bytesOnDisk += len;
+        }
+    }
+
+    // the exported CSVs compress well anyway, favour throughput
+    private static final class BestSpeedGZIPOutputStream extends GZIPOutputStream {
+        private BestSpeedGZIPOutputStream(OutputStream out) throws IOException {
+            super(out, 1 << 16);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
+    }
+}
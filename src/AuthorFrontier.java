@@ -0,0 +1,55 @@
+import org.dblp.mmdb.Person;
+
+import java.util.*;
+
+/**
+ * BFS frontier of the coauthor crawl: a FIFO queue of the authors still to expand plus the set of
+ * the PIDs of all the authors ever enqueued, so that checking whether an author has already been
+ * reached is O(1) instead of a scan of the visited list.
+ */
+public class AuthorFrontier {
+
+    private final Queue<Author> queue = new ArrayDeque<>();
+    private final Set<String> visitedPids = new HashSet<>();
+
+    /**
+     * Enqueues the given person, unless it has already been reached.
+     *
+     * @return {@code true} if the person has been enqueued.
+     */
+    public boolean offer(Person person) {
+        if (person == null || !visitedPids.add(person.getPid()))
+            return false;
+        queue.add(person instanceof Author ? (Author) person : new Author(person));
+        return true;
+    }
+
+    /**
+     * @return The next author to expand, or {@code null} if the frontier is empty.
+     */
+    public Author poll() {
+        return queue.poll();
+    }
+
+    /**
+     * Removes all the authors currently waiting in the frontier, i.e. the next BFS level.
+     *
+     * @return The authors, in FIFO order.
+     */
+    public List<Author> drain() {
+        List<Author> level = new ArrayList<>(queue);
+        queue.clear();
+        return level;
+    }
+
+    public boolean isVisited(Person person) {
+        return visitedPids.contains(person.getPid());
+    }
+
+    /**
+     * @return The number of authors ever enqueued (expanded or still waiting).
+     */
+    public int numVisited() {
+        return visitedPids.size();
+    }
+}
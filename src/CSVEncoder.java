@@ -0,0 +1,151 @@
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * CSV row encoder writing UTF-8 bytes straight into a reusable buffer in front of an
+ * {@link OutputStream}: fields are escaped and encoded char by char, nothing is allocated per row
+ * or per field.
+ * <p>
+ * The escaping is the one {@link CSVWriter} has always produced: a field containing {@code ,},
+ * {@code "} or {@code '} is quoted with its {@code "} doubled, otherwise every line break is
+ * replaced by a space.
+ */
+public class CSVEncoder implements Flushable, Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int count = 0;
+    private long bytesWritten = 0;
+
+    public CSVEncoder(OutputStream out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CSVEncoder(OutputStream out, int bufferSize) {
+        this.out = out;
+        // room for the widest char (4 bytes) plus quote/comma/line separator
+        this.buffer = new byte[Math.max(bufferSize, 16)];
+    }
+
+    public void writeRow(List<String> row) throws IOException {
+        for (int i = 0, n = row.size(); i < n; i++) {
+            if (i > 0)
+                put((byte) ',');
+            writeField(row.get(i));
+        }
+        for (byte b : LINE_SEPARATOR)
+            put(b);
+    }
+
+    private void writeField(String data) throws IOException {
+        if (data == null)
+            return;
+        int length = data.length();
+
+        boolean quote = false;
+        for (int i = 0; i < length; i++) {
+            char c = data.charAt(i);
+            if (c == ',' || c == '"' || c == '\'') {
+                quote = true;
+                break;
+            }
+        }
+
+        if (quote)
+            put((byte) '"');
+        for (int i = 0; i < length; i++) {
+            char c = data.charAt(i);
+            if (quote) {
+                if (c == '"')
+                    put((byte) '"');
+            } else if (isLineBreak(c)) {
+                // \r\n is a single line break
+                if (c == '\r' && i + 1 < length && data.charAt(i + 1) == '\n')
+                    i++;
+                c = ' ';
+            }
+            i = putChar(data, i, c);
+        }
+        if (quote)
+            put((byte) '"');
+    }
+
+    // same chars as the \R regex
+    private static boolean isLineBreak(char c) {
+        return c == '\n' || c == '\u000B' || c == '\f' || c == '\r' || c == '\u0085' || c == 0x2028 || c == 0x2029;
+    }
+
+    /**
+     * Encodes the char at index {@code i} as UTF-8.
+     *
+     * @return The index of the last char consumed (a surrogate pair takes two).
+     */
+    private int putChar(String data, int i, char c) throws IOException {
+        if (buffer.length - count < 4)
+            flushBuffer();
+        if (c < 0x80) {
+            buffer[count++] = (byte) c;
+        } else if (c < 0x800) {
+            buffer[count++] = (byte) (0xC0 | (c >> 6));
+            buffer[count++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && i + 1 < data.length() && Character.isLowSurrogate(data.charAt(i + 1))) {
+            int cp = Character.toCodePoint(c, data.charAt(i + 1));
+            buffer[count++] = (byte) (0xF0 | (cp >> 18));
+            buffer[count++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+            buffer[count++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+            buffer[count++] = (byte) (0x80 | (cp & 0x3F));
+            return i + 1;
+        } else if (Character.isSurrogate(c)) {
+            // unpaired surrogate, same replacement as String.getBytes(UTF_8)
+            buffer[count++] = (byte) '?';
+        } else {
+            buffer[count++] = (byte) (0xE0 | (c >> 12));
+            buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buffer[count++] = (byte) (0x80 | (c & 0x3F));
+        }
+        return i;
+    }
+
+    private void put(byte b) throws IOException {
+        if (count == buffer.length)
+            flushBuffer();
+        buffer[count++] = b;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            bytesWritten += count;
+            count = 0;
+        }
+    }
+
+    /**
+     * @return The number of bytes encoded so far (including the ones still in the buffer).
+     */
+    public long getBytesWritten() {
+        return bytesWritten + count;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -29,14 +29,15 @@
 // SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 //
 
-import org.dblp.mmdb.Publication;
 import org.dblp.mmdb.RecordDb;
 import org.dblp.mmdb.RecordDbInterface;
 import org.xml.sax.SAXException;
 
+import javax.xml.stream.XMLStreamException;
+import java.io.File;
 import java.io.IOException;
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.List;
+import java.util.Set;
 
 
 public class CSVGenerator {
@@ -44,198 +45,136 @@ public class CSVGenerator {
     private static RecordDbInterface dblp = null;
 
     private static final String RESULTS_DIRECTORY_PATH = "results/";
-    private static final int MAX_NUM_CITATIONS_PER_PUB = 10;
-    private static final int MAX_NUM_PUBS_PER_CONTEXT = 10;
-    private static final int INIT_NUM_AUTHORS = 10;
-    private static final int MAX_NUM_VISITING_AUTHORS = 200;
 
-    // Unique entries to be inserted in the db
-    private static final Set<List<String>> author_entries = new HashSet<>();
     private static final Set<List<String>> association_entries = AssociationUtils.generateCSVEntriesViaJSON();
-    private static final Set<List<String>> author_pub_entries = new HashSet<>(); // relation author->PRODUCE->publication
-    private static final Set<List<String>> publication_entries = new HashSet<>();
-    private static final Set<List<String>> context_entries = new HashSet<>();
-    private static final Set<List<String>> citation_entries = new HashSet<>();
-    private static final Set<List<String>> context_pubs_entries = new HashSet<>();
-    private static final Set<List<String>> author_association_entries = new HashSet<>(); // relation author->PRODUCE->publication
-    private static final Set<List<String>> pub_author_citations_entries = new HashSet<>(); // relation author->PRODUCE->publication
-
-
-    // set of authors that we will consider
-    private static final List<Author> authors = new ArrayList<>();
-    //List<Person> authors = new ArrayList<>();
-
-    // set of publications we need to insert into the database given authors
-    private static final Set<MyPublication> util_pubs = new HashSet<>();
-    // set of contexts we need to insert into the database given authors
-    private static final Set<Context> util_contexts = new HashSet<>();
-    private static final Set<String> exploredContextNames = new HashSet<>();
 
     public static void main(String[] args) {
 
-        dblp = loadXML(args);
-
-        // if we don't add orcid, useless
-        dblp.getPersons().stream().map(Author::new).filter(Author::hasOrcid).limit(INIT_NUM_AUTHORS).forEach(authors::add);
-
-        boolean stopAddingAuthors = false;
-        for (int count = 0; count < authors.size(); count++){
-
-            Author author = authors.get(count);
-
-            if (!author.getPublications().isEmpty()) {
-
-                // author.csv
-                author_entries.add(author.generateCSVEntry());
-
-                // author_association_relation.csv
-                author_association_entries.add(Arrays.asList(author.getPid(), AssociationUtils.getRandomAssociation().getId()));
+        ExportOptions options = ExportOptions.parse(args);
 
-                for(Publication pub :  author.getPublications()) {
-                    MyPublication publication = new MyPublication(pub);
-                    // visiting coauthors
-                    if (!stopAddingAuthors) {
-                        for (String coauthorName : author.getCoauthorNamesIn(publication)) {
-                            Author coauthor = new Author(dblp.getPersonByName(coauthorName));
-
-                            if (authors.size() > MAX_NUM_VISITING_AUTHORS) stopAddingAuthors = true;
-
-                            if (!authors.contains(coauthor)) authors.add(coauthor);
-                        }
-                    }
-
-                    // filtering publications by type (context or publication)
-                    distributePublication(publication, true);
-                }
-            }
+        if (options.isStreaming()) {
+            streamXML(options);
+            return;
         }
 
+        dblp = loadXML(options);
+        if (dblp == null)
+            return;
 
-        // construct all types of publication csv starting from the util publication list
-        // publications.csv
-        Set<MyPublication> very_util_pubs = dblp.getPublications().stream().map(MyPublication::new).filter(p -> !p.getCitations().isEmpty()).limit(util_pubs.size()/3).collect(Collectors.toSet());
-        very_util_pubs.addAll(util_pubs.stream().filter(p -> !p.getCitations().isEmpty()).collect(Collectors.toSet()));
-        util_pubs.removeIf(p -> !p.getCitations().isEmpty());
-        List<MyPublication> list_util_pubs = new ArrayList<>(util_pubs);
-        Collections.shuffle(list_util_pubs);
-        very_util_pubs.addAll(list_util_pubs.stream().limit(util_pubs.size() / 2).toList());
-        for (MyPublication publication : very_util_pubs) {
-
-            if (publication.getKey().equals("conf/asap/PeesVZM97"))
-                System.out.println("conf/asap/PeesVZM97");
-
-            /*
-            if (publication.getTag().equals("book")) {
-                System.out.println("BOOK: " + publication.getFields().stream().map(field -> field.tag() + ": " + field.value() + " - ").collect(Collectors.joining(",")) + "\n");
-                if (!publication.getCrossRef().equals(""))
-                    System.out.println("book senza padre");
+        if (options.hasSeparationQueries()) {
+            try {
+                new File(RESULTS_DIRECTORY_PATH).mkdirs();
+                SeparationQueries.run(dblp, buildCoauthorGraph(), options.getSeparationFilename(), RESULTS_DIRECTORY_PATH, options.getNumThreads());
+            } catch (IOException e) {
+                e.printStackTrace();
             }
-
-            if (publication.getFields().stream().anyMatch(Field::hasAttributes))
-                System.out.println("HAS ATTR: " + publication.getFields().stream().map(field -> field.tag() + ": " + field.value() + " - ").collect(Collectors.joining(",")) + "\n");
-
-             */
-
-            addPublicationAndItsRelationEntries(publication, true);
-
-            //add list of authors for each publication
-
-            List<String> authors_citations= new ArrayList<>();
-            authors_citations.add(publication.getKey());
-            authors_citations.add(publication.getTitle());
-            authors_citations.addAll(publication.getNamesString());
-            //STOP1 is my separator from citation and authors
-            authors_citations.add("STOP1");
-
-
-            //pub_author_citations_entries.add(Collections.singletonList("STOP1"));)
-
-            List<String> citations = publication.getCitations().stream().limit(MAX_NUM_CITATIONS_PER_PUB).toList();
-            if (!citations.isEmpty()) {
-                //if (citations.size() > MAX_NUM_CITATIONS_PER_PUB) citations = citations.subList(0, MAX_NUM_CITATIONS_PER_PUB);
-                citations.forEach(cit -> {
-                    // pub_pubs_relation.csv (citations of a publication)
-                    // Adding the following pair: < key of the publication, key of another publication cited in that publication >
-                    citation_entries.add(Arrays.asList(publication.getKey(), cit));
-
-                    // Adding the citation as a publication in the db with related relations
-                    addPublicationAndItsRelationEntries(dblp.getPublication(cit), true);
-                });
-            }
-            //add citation to pub_author_entries after the stop in order to have in only 1 row all the info
-            authors_citations.addAll(citations);
-            pub_author_citations_entries.add(authors_citations);
-
+            return;
         }
-        // adding possible contexts (book) of the current publication
-        // NO. ASSUMPTION: book no context
-
-
-        // contexts.csv
-        for (Context context : util_contexts){
-
-            if (context.getKey().equals("conf/asap/1997"))
-                System.out.println("conf/asap/1997");
 
-            context_entries.add(context.generateCSVEntry());
-
-            // context_pubs_relation.csv
-            List<String> pubs_in_proceedings = context.getRelatedPublications().stream().limit(MAX_NUM_PUBS_PER_CONTEXT).toList();
-            // List<String> pubs_in_proceedings = context.getRelatedPublications();
-            if(!pubs_in_proceedings.isEmpty()){
-                pubs_in_proceedings.forEach(pub -> {
-                    // Adding the following pair: < key of the context, key of the publication presented in that context >
-                    context_pubs_entries.add(context.generateCSVEntry(pub));
-
-                    // Adding the publication presented in that context as a publication in the db with related relations
-                    addPublicationAndItsRelationEntries(dblp.getPublication(pub), false);
-                });
+        if (options.isServing()) {
+            try {
+                new ExportServer(dblp, association_entries, options.getServerPort()).start();
+            } catch (IOException e) {
+                e.printStackTrace();
             }
+            return;
         }
 
-        System.out.println("pub entry size: " + publication_entries.size());
-        System.out.println("num of pubs with citations: " + (int) very_util_pubs.stream().filter(p -> !p.getCitations().isEmpty()).count());
-        System.out.println("author_pubs_rel size: " + author_pub_entries.size());
-
-
+        ExportJob job = new ExportJob(dblp, association_entries, RESULTS_DIRECTORY_PATH);
+        job.setNumThreads(options.getNumThreads());
+        if (options.hasRandomSeed()) job.setRandomSeed(options.getRandomSeed());
+        job.setGzipOutput(options.isGzipOutput());
+        job.setNeo4jImportFormat(options.isNeo4jImport());
+        job.setFullExport(options.isFullExport());
+        job.setWriteManifest(options.isWriteManifest());
+        if (options.hasPreviousManifest()) job.setPreviousManifest(options.getPreviousManifest());
+        if (options.hasCitationIndex() || options.hasPageRank()) {
+            CitationIndex citationIndex = buildCitationIndex();
+            job.setCitationIndex(citationIndex);
+            if (options.hasCitationIndex())
+                job.setMaxNumCitersPerPub(options.getMaxNumCitersPerPub());
+            if (options.hasPageRank())
+                job.setCitationRank(buildCitationRank(citationIndex, options.getNumThreads()));
+        }
+        job.setCitationLeaderboardSize(options.getCitationLeaderboardSize());
+        if (options.hasCoauthorGraph())
+            job.setCoauthorGraph(buildCoauthorGraph());
         try {
-            CSVWriter.convertToCSV(author_entries, RESULTS_DIRECTORY_PATH + "authors.csv");
-            CSVWriter.convertToCSV(author_pub_entries, RESULTS_DIRECTORY_PATH + "author_pubs_relation.csv");
-            CSVWriter.convertToCSV(publication_entries, RESULTS_DIRECTORY_PATH + "publications.csv");
-            CSVWriter.convertToCSV(citation_entries,RESULTS_DIRECTORY_PATH + "pub_pubs_relation.csv");
-            CSVWriter.convertToCSV(context_pubs_entries,RESULTS_DIRECTORY_PATH + "context_pubs_relation.csv");
-            CSVWriter.convertToCSV(context_entries,RESULTS_DIRECTORY_PATH + "contexts.csv");
-            CSVWriter.convertToCSV(association_entries,RESULTS_DIRECTORY_PATH + "associations.csv");
-            CSVWriter.convertToCSV(author_association_entries,RESULTS_DIRECTORY_PATH + "author_association_relation.csv");
-            CSVWriter.convertToCSV(pub_author_citations_entries,RESULTS_DIRECTORY_PATH + "pub_author_citations.csv");
-
+            job.run();
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
 
-    private static RecordDbInterface loadXML(String[] args) {
+    static CitationIndex buildCitationIndex() {
+        System.out.println("building the citation index ...");
+        long start = System.currentTimeMillis();
+        CitationIndex index = CitationIndex.build(dblp.getPublications());
+        System.out.format("citation index: %d publications, %d citations, %d ms\n\n",
+                index.size(), index.numberOfCitations(), System.currentTimeMillis() - start);
+        return index;
+    }
+
+    static CitationRank buildCitationRank(CitationIndex index, int numThreads) {
+        System.out.println("computing the pagerank of the publications ...");
+        long start = System.currentTimeMillis();
+        CitationRank rank = CitationRank.compute(index, numThreads);
+        System.out.format("pagerank: %d iterations, %d ms\n\n", rank.getNumIterations(), System.currentTimeMillis() - start);
+        return rank;
+    }
+
+    static CoauthorGraph buildCoauthorGraph() {
+        System.out.println("building the coauthor graph ...");
+        long start = System.currentTimeMillis();
+        CoauthorGraph graph = CoauthorGraph.build(dblp.getPersons(), dblp.getPublications());
+        System.out.format("coauthor graph: %d persons, %d coauthor pairs, %d ms\n\n",
+                graph.size(), graph.numberOfEdges(), System.currentTimeMillis() - start);
+        return graph;
+    }
+
+    private static RecordDbInterface loadXML(ExportOptions options) {
         // we need to raise entityExpansionLimit because the dblp.xml has millions of entities
         System.setProperty("entityExpansionLimit", "1000");
 
-        if (args.length != 2) {
-            System.err.format("Usage: java %s <dblp-xml-file> <dblp-dtd-file>\n", CSVGenerator.class.getName());
-            System.exit(0);
-        }
-        String dblpXmlFilename = args[0];
-        String dblpDtdFilename = args[1];
+        String dblpXmlFilename = options.getDblpXmlFilename();
+        String dblpDtdFilename = options.getDblpDtdFilename();
 
         System.out.println("building the dblp main memory DB ...");
+        CompressedInput.Pipe pipe = null;
         try {
-            dblp = new RecordDb(dblpXmlFilename, dblpDtdFilename, false);
+            // the DB only reads from a file name, a compressed dump goes through a named pipe
+            RecordFilter filter = options.getRecordFilter();
+            if (!filter.isEmpty()) {
+                // the filtered records are cut out of the mapped dump, it can't be compressed
+                if (CompressedInput.isCompressed(dblpXmlFilename)) {
+                    System.err.println("cannot filter the records of a compressed dump for the main memory DB, decompress it first");
+                    return null;
+                }
+                System.out.println("only reading the records of " + filter);
+                pipe = filteredPipe(dblpXmlFilename, dblpDtdFilename, filter);
+            } else if (CompressedInput.isCompressed(dblpXmlFilename)) {
+                System.out.println("decompressing " + dblpXmlFilename + " on the fly");
+                pipe = CompressedInput.openAsPipe(dblpXmlFilename);
+            }
+            dblp = new RecordDb(pipe != null ? pipe.getPath() : dblpXmlFilename, dblpDtdFilename, false);
+            // the DB stops at the end of the pipe, whether the dump was all written into it or not
+            if (pipe != null)
+                pipe.checkWritten();
         }
         catch (final IOException ex) {
             System.err.println("cannot read dblp XML: " + ex.getMessage());
             return null;
         }
         catch (final SAXException ex) {
-            System.err.println("cannot parse XML: " + ex.getMessage());
+            try {
+                // a truncated dump is not a parse error
+                if (pipe != null)
+                    pipe.checkFailure();
+                System.err.println("cannot parse XML: " + ex.getMessage());
+            } catch (IOException e) {
+                System.err.println("cannot read dblp XML: " + e.getMessage());
+            }
             return null;
         }
         System.out.format("MMDB ready: %d publs, %d pers\n\n", dblp.numberOfPublications(), dblp.numberOfPersons());
@@ -243,62 +182,116 @@ public class CSVGenerator {
         return dblp;
     }
 
-    private static Optional<Context> getContextByName(String journalName) {
-        return util_contexts.stream().filter(c -> c.getTitle().equals(journalName)).findFirst();
+    /**
+     * @return A named pipe the accepted records of the dump are copied to, as they are in the
+     * dump, while the DB reads it; the rejected ones are only scanned.
+     */
+    private static CompressedInput.Pipe filteredPipe(String dblpXmlFilename, String dblpDtdFilename, RecordFilter filter) throws IOException {
+        MappedDblpReader reader;
+        try {
+            // no field is decoded but the ones the filter tests
+            reader = new MappedDblpReader(dblpXmlFilename, dblpDtdFilename, Set.of());
+        } catch (XMLStreamException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        reader.setFilter(filter);
+        return CompressedInput.pipe(new File(dblpXmlFilename).getName(), "filter " + dblpXmlFilename, out -> {
+            try (reader) {
+                System.out.format("%d records read\n", reader.writeAccepted(out));
+            } catch (XMLStreamException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        });
     }
 
-    private static void distributePublication(MyPublication publication, boolean addToUtilPubs) {
-        // TODO: we are losing relation author -> context
-        if(publication.getTag().equals("proceedings")) {
-            String contextTitle = PublicationUtils.getTitle(publication);
-            if (!exploredContextNames.contains(contextTitle)) {
-                util_contexts.add(new Conference(publication));
-                exploredContextNames.add(contextTitle);
+    private static void streamXML(ExportOptions options) {
+        // we need to raise entityExpansionLimit because the dblp.xml has millions of entities
+        System.setProperty("entityExpansionLimit", "1000");
+
+        RecordSource.Factory xml;
+        RecordFilter filter = options.getRecordFilter();
+        // a snapshot keeps every record, its records are filtered as they are read back
+        RecordFilter parseFilter = options.hasSnapshot() ? null : filter;
+        boolean compressed;
+        try {
+            compressed = CompressedInput.isCompressed(options.getDblpXmlFilename());
+        } catch (IOException ex) {
+            System.err.println("cannot read dblp XML: " + ex.getMessage());
+            return;
+        }
+        if (compressed) {
+            // a checkpoint resumes at a byte offset of the mapped dump
+            if (!options.hasSnapshot() && (options.getCheckpointInterval() > 0 || options.isResume())) {
+                System.err.println("cannot checkpoint the export of a compressed dump without --snapshot, decompress it first");
+                return;
             }
+            // neither mapping nor chunks work on a compressed dump, it is decompressed and parsed sequentially
+            if (options.isMemoryMapped() || options.getNumThreads() > 1)
+                System.out.println("compressed dump: parsing it on one thread while it is decompressed on another one");
+            xml = () -> {
+                DblpStreamReader reader = new DblpStreamReader(options.getDblpXmlFilename(), options.getDblpDtdFilename());
+                reader.setFilter(parseFilter);
+                return reader;
+            };
+        } else if (options.isMemoryMapped()) {
+            // a snapshot keeps every field, the export only needs a few
+            Set<String> fieldTags = options.hasSnapshot() ? null : StreamingExporter.FIELD_TAGS;
+            xml = () -> {
+                MappedDblpReader reader = new MappedDblpReader(options.getDblpXmlFilename(), options.getDblpDtdFilename(), fieldTags);
+                reader.setFilter(parseFilter);
+                return reader;
+            };
+        } else if (options.getNumThreads() > 1) {
+            // the xml is cut at record boundaries and parsed on all the threads
+            xml = () -> {
+                ParallelDblpReader reader = new ParallelDblpReader(options.getDblpXmlFilename(), options.getDblpDtdFilename(), options.getNumThreads());
+                reader.setFilter(parseFilter);
+                return reader;
+            };
+        } else {
+            xml = () -> {
+                DblpStreamReader reader = new DblpStreamReader(options.getDblpXmlFilename(), options.getDblpDtdFilename());
+                reader.setFilter(parseFilter);
+                return reader;
+            };
         }
-        else if (publication.getTag().equals("article")) {
-            if (publication.getJournal() != null) {
-                String contextName = publication.getJournal().getTitle();
-                if (!exploredContextNames.contains(contextName)) {
-                    util_contexts.add(new Journal(publication));
-                    if (addToUtilPubs) util_pubs.add(publication);
-                    exploredContextNames.add(contextName);
-                } else {
-                    getContextByName(contextName).ifPresent(c -> c.insertNewArticle(publication.getKey()));
+        if (!filter.isEmpty())
+            System.out.println("only reading the records of " + filter);
+        try {
+            RecordSource.Factory sources = xml;
+            if (options.hasSnapshot()) {
+                String snapshot = options.getSnapshotFilename();
+                if (!DblpSnapshot.isUpToDate(snapshot, options.getDblpXmlFilename())) {
+                    if (DblpSnapshot.exists(snapshot))
+                        System.out.println("the dblp snapshot " + snapshot + " is not the one of " + options.getDblpXmlFilename() + ", rewriting it");
+                    System.out.println("writing the dblp snapshot " + snapshot + " ...");
+                    try (RecordSource source = xml.open()) {
+                        System.out.format("snapshot ready: %d records\n\n", DblpSnapshot.write(source, options.getDblpXmlFilename(), snapshot));
+                    }
                 }
+                sources = () -> filter.apply(DblpSnapshot.open(snapshot));
+                System.out.println("streaming the dblp snapshot " + snapshot + " (no main memory DB) ...");
+            } else {
+                System.out.println("streaming the dblp XML (no main memory DB) ...");
             }
+            StreamingExporter exporter = new StreamingExporter(sources, RESULTS_DIRECTORY_PATH);
+            exporter.setGzipOutput(options.isGzipOutput());
+            exporter.setNeo4jImportFormat(options.isNeo4jImport());
+            exporter.setWriteManifest(options.isWriteManifest());
+            exporter.setCheckpointInterval(options.getCheckpointInterval());
+            exporter.setResume(options.isResume());
+            exporter.setRecordFilter(filter);
+            exporter.setCitationLeaderboardSize(options.getCitationLeaderboardSize());
+            if (options.hasPreviousManifest()) exporter.setPreviousManifest(options.getPreviousManifest());
+            exporter.export();
+            exporter.exportAssociations(association_entries);
         }
-        else {
-            if (addToUtilPubs) util_pubs.add(publication);
-        }
-    }
-
-    private static void addPublicationAndItsRelationEntries(Publication publicationToAdd, boolean addAlsoItsPossibleContext) {
-        MyPublication publication = new MyPublication(publicationToAdd);
-
-        // add publicationToAdd's info ( if we have info on its context )
-        if (publication.hasContextInfo()) {
-            // publications.csv
-            publication_entries.add(publication.generateCSVEntry());
-
-            // add all the authors of publicationToAdd (both in authors.csv and author_pubs_relation.csv)
-            publication.getNames().forEach(authorName -> {
-                Author author = new Author(authorName.getPerson());
-                author_entries.add(author.generateCSVEntry());
-                // author_pubs_relation.csv
-                // Adding the following pair: < key of the author, key of the publication written by that author >
-                author_pub_entries.add(Arrays.asList(author.getPid(), publication.getKey()));
-            });
+        catch (final IOException ex) {
+            System.err.println("cannot read dblp XML: " + ex.getMessage());
         }
-
-        if (addAlsoItsPossibleContext) {
-            if (publication.hasCrossRef()) {
-                distributePublication(new MyPublication(dblp.getPublication(publication.getCrossRef())), false);
-            } else if (publication.getTag().equals("article")) {
-                distributePublication(publication, false);
-            }
+        catch (final XMLStreamException ex) {
+            System.err.println("cannot parse XML: " + ex.getMessage());
         }
     }
 
 }
-
@@ -0,0 +1,214 @@
+import java.io.*;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Output CSV file that rows are written to as soon as they are produced. Duplicated rows are
+ * dropped by remembering two independent 64-bit fingerprints of every written row instead of the
+ * row itself, so the memory needed for the deduplication is a few tens of bytes per row, whatever
+ * the row length. A row is only dropped when both fingerprints match the ones of a written row; a
+ * row with the first fingerprint of another one but not the second is written anyway and counted
+ * as a collision in the {@link #report()}. Rows are thus never dropped unnoticed, but a row that
+ * collides with an earlier one and is itself repeated is written each time.
+ * <p>
+ * Rows are encoded by a {@link CSVEncoder} in the caller thread, the file itself is (gzipped and)
+ * written by the {@link AsyncFileOutputStream} thread of the sink, so all the sinks of an export
+ * write in parallel.
+ */
+public class CSVSink implements Closeable {
+
+    private static final int ENCODER_BUFFER_SIZE = 1 << 20;
+
+    private final String fileName;
+    private final AsyncFileOutputStream out;
+    private final CSVEncoder encoder;
+    // first fingerprint -> second fingerprint of the written rows
+    private final LongLongHashMap fingerprints;
+    private final RowFormat format;
+    private long numRows = 0;
+    private long numCollisions = 0;
+
+    public CSVSink(String fileName, boolean deduplicate) throws IOException {
+        this(fileName, deduplicate, false);
+    }
+
+    /**
+     * @param deduplicate Whether rows already written have to be dropped.
+     * @param gzip        Whether to gzip the file on the fly, {@code .gz} is appended to its name.
+     */
+    public CSVSink(String fileName, boolean deduplicate, boolean gzip) throws IOException {
+        this(fileName, deduplicate, gzip, null);
+    }
+
+    /**
+     * @param deduplicate Whether rows already written have to be dropped.
+     * @param gzip        Whether to gzip the file on the fly, {@code .gz} is appended to its name.
+     * @param format      Transformation of the rows (and header) to write, {@code null} to write
+     *                    the rows as they are. Deduplication is done on the rows before the
+     *                    transformation.
+     */
+    public CSVSink(String fileName, boolean deduplicate, boolean gzip, RowFormat format) throws IOException {
+        this(fileName, deduplicate, gzip, format, null);
+    }
+
+    /**
+     * @param resumeFrom Checkpoint of a previous sink on the same file to append to, {@code null}
+     *                   to start a new file. The rows deduplicated by the previous sink are not
+     *                   known to this one.
+     */
+    public CSVSink(String fileName, boolean deduplicate, boolean gzip, RowFormat format, Position resumeFrom) throws IOException {
+        this.fileName = gzip ? fileName + ".gz" : fileName;
+        this.out = new AsyncFileOutputStream(Path.of(this.fileName), gzip, resumeFrom != null ? resumeFrom.offset : 0);
+        this.encoder = new CSVEncoder(out, ENCODER_BUFFER_SIZE);
+        this.fingerprints = deduplicate ? new LongLongHashMap() : null;
+        this.format = format;
+        if (resumeFrom != null)
+            this.numRows = resumeFrom.numRows;
+        else if (format != null && format.header() != null)
+            encoder.writeRow(format.header());
+    }
+
+    /**
+     * Writes the given row, unless an equal row has already been written.
+     *
+     * @return {@code true} if the row has been written.
+     * @throws UncheckedIOException if the row can't be written.
+     */
+    public boolean add(List<String> row) {
+        if (fingerprints != null && isDuplicate(row))
+            return false;
+        if (format != null) {
+            row = format.format(row);
+            if (row == null)
+                return false;
+        }
+        try {
+            encoder.writeRow(row);
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot write " + fileName, e);
+        }
+        numRows++;
+        return true;
+    }
+
+    private boolean isDuplicate(List<String> row) {
+        long first = fingerprint(row);
+        long second = secondFingerprint(row);
+        if (!fingerprints.containsKey(first)) {
+            fingerprints.put(first, second);
+            return false;
+        }
+        if (fingerprints.getOrDefault(first, 0) == second)
+            return true;
+        numCollisions++;
+        return false;
+    }
+
+    public void addAll(Iterable<List<String>> rows) {
+        for (List<String> row : rows)
+            add(row);
+    }
+
+    /**
+     * @return The number of rows written so far.
+     */
+    public long size() {
+        return numRows;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * @return The number of CSV bytes written so far (before compression).
+     */
+    public long getBytesWritten() {
+        return encoder.getBytesWritten();
+    }
+
+    /**
+     * @return The size of the file on disk, final once the sink is closed.
+     */
+    public long getBytesOnDisk() {
+        return out.getBytesOnDisk();
+    }
+
+    /**
+     * Makes all the rows written so far durable.
+     *
+     * @return The position to resume the file from.
+     */
+    public Position checkpoint() throws IOException {
+        encoder.flush();
+        return new Position(out.checkpoint(), numRows);
+    }
+
+    /**
+     * @return The number of rows written although their first fingerprint was the one of another
+     * row, 0 but with astronomically rare exceptions.
+     */
+    public long getNumCollisions() {
+        return numCollisions;
+    }
+
+    public String report() {
+        String report = String.format("%s: %d rows, %d bytes (%d on disk)", new File(fileName).getName(), numRows, getBytesWritten(), getBytesOnDisk());
+        return numCollisions > 0 ? report + ", " + numCollisions + " fingerprint collisions" : report;
+    }
+
+    @Override
+    public void close() throws IOException {
+        encoder.close();
+    }
+
+    /**
+     * Length of the file and number of rows at a checkpoint.
+     */
+    public static final class Position {
+        private final long offset;
+        private final long numRows;
+
+        public Position(long offset, long numRows) {
+            this.offset = offset;
+            this.numRows = numRows;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public long getNumRows() {
+            return numRows;
+        }
+    }
+
+    // 64-bit FNV-1a over the fields, each one preceded by its length (-1 for null) rather than
+    // followed by a separator char, so that ("ab", "c") != ("a", "bc") even when a field holds the
+    // char of the old separator, and (null) != ("")
+    static long fingerprint(List<String> row) {
+        long h = 0xcbf29ce484222325L;
+        for (String field : row) {
+            int length = field != null ? field.length() : -1;
+            h = (h ^ (length >>> 16)) * 0x100000001b3L;
+            h = (h ^ (length & 0xFFFF)) * 0x100000001b3L;
+            for (int i = 0; i < length; i++)
+                h = (h ^ field.charAt(i)) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    // independent of the FNV-1a one: other constant, a rotation per char and a final mix
+    static long secondFingerprint(List<String> row) {
+        long h = 0x9E3779B97F4A7C15L;
+        for (String field : row) {
+            int length = field != null ? field.length() : -1;
+            h = Long.rotateLeft(h ^ length, 27) * 0xC6A4A7935BD1E995L;
+            for (int i = 0; i < length; i++)
+                h = Long.rotateLeft(h ^ field.charAt(i), 27) * 0xC6A4A7935BD1E995L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        return h ^ (h >>> 33);
+    }
+}
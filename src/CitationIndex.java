@@ -0,0 +1,135 @@
+import org.dblp.mmdb.Publication;
+
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * Reverse citation index ("cited by") of all the publications of the DB, built in one pass over
+ * their {@code cite} fields. Publications get dense int ids in key order, the citers of each
+ * publication are stored in compressed sparse row form: the citers of publication {@code id} are
+ * {@code citers[offsets[id]] .. citers[offsets[id + 1] - 1]}, in ascending id order. Besides the
+ * key array, the whole index is a few primitive arrays.
+ */
+public class CitationIndex {
+
+    private final String[] keys;
+    private final int[] offsets;
+    private final int[] citers;
+
+    private CitationIndex(String[] keys, int[] offsets, int[] citers) {
+        this.keys = keys;
+        this.offsets = offsets;
+        this.citers = citers;
+    }
+
+    public static CitationIndex build(Collection<? extends Publication> publications) {
+        Publication[] sorted = publications.toArray(new Publication[0]);
+        Arrays.sort(sorted, Comparator.comparing(Publication::getKey));
+        String[] keys = new String[sorted.length];
+        for (int i = 0; i < sorted.length; i++)
+            keys[i] = sorted[i].getKey();
+        return build(keys, id -> PublicationFields.of(sorted[id]).getCitations());
+    }
+
+    /**
+     * @param keys        The keys of the publications, sorted; a publication's id is its index.
+     * @param citationsOf The keys cited by each publication id.
+     */
+    static CitationIndex build(String[] keys, IntFunction<? extends Collection<String>> citationsOf) {
+        // (cited, citer) pairs; citers come in ascending order since publications are visited by id
+        int[] citedIds = new int[1024];
+        int[] citerIds = new int[1024];
+        int numCitations = 0;
+        int[] inDegrees = new int[keys.length];
+        for (int citer = 0; citer < keys.length; citer++) {
+            int first = numCitations;
+            for (String cite : citationsOf.apply(citer)) {
+                int cited = Arrays.binarySearch(keys, cite);
+                if (cited < 0 || cited == citer || containsCited(citedIds, first, numCitations, cited))
+                    continue;
+                if (numCitations == citedIds.length) {
+                    citedIds = Arrays.copyOf(citedIds, numCitations * 2);
+                    citerIds = Arrays.copyOf(citerIds, numCitations * 2);
+                }
+                citedIds[numCitations] = cited;
+                citerIds[numCitations] = citer;
+                numCitations++;
+                inDegrees[cited]++;
+            }
+        }
+
+        int[] offsets = new int[keys.length + 1];
+        for (int i = 0; i < keys.length; i++)
+            offsets[i + 1] = offsets[i] + inDegrees[i];
+        int[] citers = new int[numCitations];
+        int[] next = Arrays.copyOf(offsets, keys.length);
+        for (int i = 0; i < numCitations; i++)
+            citers[next[citedIds[i]]++] = citerIds[i];
+
+        return new CitationIndex(keys, offsets, citers);
+    }
+
+    // a publication citing the same key twice counts once
+    private static boolean containsCited(int[] citedIds, int from, int to, int cited) {
+        for (int i = from; i < to; i++) {
+            if (citedIds[i] == cited)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return The number of publications.
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * @return The number of (citer, cited) pairs between publications of the DB.
+     */
+    public int numberOfCitations() {
+        return citers.length;
+    }
+
+    /**
+     * @return The id of the publication with the given key, or -1 if it is not in the DB.
+     */
+    public int idOf(String key) {
+        int id = Arrays.binarySearch(keys, key);
+        return id >= 0 ? id : -1;
+    }
+
+    public int inDegree(int id) {
+        return offsets[id + 1] - offsets[id];
+    }
+
+    /**
+     * @return The number of publications citing the given one, 0 if it is not in the DB.
+     */
+    public int inDegree(String key) {
+        int id = idOf(key);
+        return id >= 0 ? inDegree(id) : 0;
+    }
+
+    /**
+     * @return The {@code i}-th citer of publication {@code id}, {@code 0 <= i < inDegree(id)}.
+     */
+    public int citerAt(int id, int i) {
+        return citers[offsets[id] + i];
+    }
+
+    /**
+     * @return The keys of at most {@code limit} publications citing the given one.
+     */
+    public List<String> citedBy(String key, int limit) {
+        int id = idOf(key);
+        if (id < 0)
+            return Collections.emptyList();
+        int n = Math.min(limit, inDegree(id));
+        List<String> citedBy = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+            citedBy.add(keys[citerAt(id, i)]);
+        return citedBy;
+    }
+}
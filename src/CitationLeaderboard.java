@@ -0,0 +1,159 @@
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Most cited publications per year, counted in one streaming pass over the {@code cite} fields:
+ * for every year, the {@code k} publications most referenced by the publications of that year
+ * (the "most referenced paper of the year" query of the README, precomputed).
+ * <p>
+ * Cited keys get dense int ids, the counters are a {@link LongLongHashMap} from (citing year,
+ * cited id) packed in a long, and each year keeps its top {@code k} in a bounded min-heap of
+ * (count, id) packed in a long, ties ranked by first citation in the input.
+ * <p>
+ * Output ({@code citation_leaderboard.csv}): year, rank, cited key, number of references from
+ * that year, number of references from that year to any publication.
+ */
+public class CitationLeaderboard {
+
+    public static final String OUTPUT_FILE_NAME = "citation_leaderboard.csv";
+
+    private final int k;
+    private final Map<String, Integer> keyIds = new HashMap<>();
+    private final List<String> keys = new ArrayList<>();
+    private final LongLongHashMap counts = new LongLongHashMap(1 << 16);
+    private final LongLongHashMap yearTotals = new LongLongHashMap(256);
+    private int[] cited = new int[16];
+
+    public CitationLeaderboard(int k) {
+        if (k < 1)
+            throw new IllegalArgumentException("k must be at least 1: " + k);
+        this.k = k;
+    }
+
+    /**
+     * Counts the citations of one publication, a key cited twice by the same publication counts
+     * once. Publications without a year are ignored.
+     */
+    public void add(int citingYear, List<String> citations) {
+        if (citingYear <= 0)
+            return;
+        int numCited = 0;
+        for (String cite : citations) {
+            // dblp marks unknown references with "..."
+            if (cite.equals("..."))
+                continue;
+            int id = idOf(cite);
+            if (contains(cited, numCited, id))
+                continue;
+            if (numCited == cited.length)
+                cited = Arrays.copyOf(cited, numCited * 2);
+            cited[numCited++] = id;
+            counts.addTo(((long) citingYear << 32) | id, 1);
+        }
+        if (numCited > 0)
+            yearTotals.addTo(citingYear, numCited);
+    }
+
+    private int idOf(String key) {
+        Integer id = keyIds.get(key);
+        if (id == null) {
+            id = keys.size();
+            keyIds.put(key, id);
+            keys.add(key);
+        }
+        return id;
+    }
+
+    private static boolean contains(int[] ids, int n, int id) {
+        for (int i = 0; i < n; i++) {
+            if (ids[i] == id)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return The rows of the leaderboard, by year then rank.
+     */
+    public List<List<String>> generateCSVEntries() {
+        Map<Integer, TopK> tops = new TreeMap<>();
+        counts.forEach((yearAndId, count) -> tops.computeIfAbsent((int) (yearAndId >>> 32), y -> new TopK(k))
+                .offer(rankOf(count, (int) yearAndId)));
+
+        List<List<String>> entries = new ArrayList<>();
+        for (Map.Entry<Integer, TopK> top : tops.entrySet()) {
+            int year = top.getKey();
+            long[] ranked = top.getValue().sortedDescending();
+            String yearTotal = String.valueOf(yearTotals.getOrDefault(year, 0));
+            for (int rank = 0; rank < ranked.length; rank++)
+                entries.add(Arrays.asList(String.valueOf(year), String.valueOf(rank + 1), keys.get(idOf(ranked[rank])),
+                        String.valueOf(ranked[rank] >>> 32), yearTotal));
+        }
+        return entries;
+    }
+
+    // larger is better: more citations, then smaller id
+    private static long rankOf(long count, int id) {
+        return (count << 32) | (Integer.MAX_VALUE - id);
+    }
+
+    private static int idOf(long rank) {
+        return Integer.MAX_VALUE - (int) rank;
+    }
+
+    public void write(String resultsDirectoryPath, boolean gzip) throws IOException {
+        try (CSVSink sink = new CSVSink(resultsDirectoryPath + OUTPUT_FILE_NAME, false, gzip)) {
+            sink.addAll(generateCSVEntries());
+        }
+        System.out.format("citation leaderboard: %d years, %d cited publications\n", yearTotals.size(), keys.size());
+    }
+
+    // min-heap of the k largest values offered
+    private static final class TopK {
+        private final long[] heap;
+        private int size = 0;
+
+        private TopK(int k) {
+            this.heap = new long[k];
+        }
+
+        private void offer(long value) {
+            if (size < heap.length) {
+                heap[size] = value;
+                for (int i = size++; i > 0 && heap[(i - 1) / 2] > heap[i]; i = (i - 1) / 2)
+                    swap(i, (i - 1) / 2);
+            } else if (value > heap[0]) {
+                heap[0] = value;
+                for (int i = 0; ; ) {
+                    int smallest = i;
+                    int left = 2 * i + 1;
+                    if (left < size && heap[left] < heap[smallest])
+                        smallest = left;
+                    if (left + 1 < size && heap[left + 1] < heap[smallest])
+                        smallest = left + 1;
+                    if (smallest == i)
+                        break;
+                    swap(i, smallest);
+                    i = smallest;
+                }
+            }
+        }
+
+        private long[] sortedDescending() {
+            long[] sorted = Arrays.copyOf(heap, size);
+            Arrays.sort(sorted);
+            for (int i = 0, j = size - 1; i < j; i++, j--) {
+                long tmp = sorted[i];
+                sorted[i] = sorted[j];
+                sorted[j] = tmp;
+            }
+            return sorted;
+        }
+
+        private void swap(int i, int j) {
+            long tmp = heap[i];
+            heap[i] = heap[j];
+            heap[j] = tmp;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * PageRank of the publications over the citation graph of a {@link CitationIndex}, computed in
+ * process instead of by a graph algorithm in Neo4j.
+ * <p>
+ * Each iteration pulls the rank of a publication from its citers (the in-edges the index stores),
+ * in two phases run on {@code numThreads} threads: the contribution of every publication (its rank
+ * divided by its number of citations), then the new ranks. The publications are split in a fixed
+ * number of chunks whatever the number of threads, so the scores are the same for any number of
+ * threads. Publications citing nothing of the DB spread their rank over all publications.
+ * Iterations stop when the L1 change of the ranks drops below the tolerance, or after
+ * {@code maxIterations}.
+ * <p>
+ * Scores are scaled so that their mean is 1: a publication with score 3 is three times as
+ * influential as the average one.
+ */
+public class CitationRank {
+
+    public static final double DEFAULT_DAMPING = 0.85;
+    public static final int DEFAULT_MAX_ITERATIONS = 50;
+    public static final double DEFAULT_TOLERANCE = 1e-6;
+
+    private static final int NUM_CHUNKS = 64;
+
+    private final CitationIndex index;
+    private final double[] scores;
+    private final int numIterations;
+
+    private CitationRank(CitationIndex index, double[] scores, int numIterations) {
+        this.index = index;
+        this.scores = scores;
+        this.numIterations = numIterations;
+    }
+
+    public static CitationRank compute(CitationIndex index, int numThreads) {
+        return compute(index, DEFAULT_DAMPING, DEFAULT_MAX_ITERATIONS, DEFAULT_TOLERANCE, numThreads);
+    }
+
+    public static CitationRank compute(CitationIndex index, double damping, int maxIterations, double tolerance, int numThreads) {
+        int n = index.size();
+        if (n == 0)
+            return new CitationRank(index, new double[0], 0);
+
+        // the index only has the citers of each publication, the out-degrees are counted from them
+        int[] outDegrees = new int[n];
+        for (int id = 0; id < n; id++) {
+            for (int i = 0, inDegree = index.inDegree(id); i < inDegree; i++)
+                outDegrees[index.citerAt(id, i)]++;
+        }
+
+        double[] ranks = new double[n];
+        double[] next = new double[n];
+        double[] contributions = new double[n];
+        Arrays.fill(ranks, 1.0 / n);
+
+        int chunk = (n + NUM_CHUNKS - 1) / NUM_CHUNKS;
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, numThreads));
+        int iteration = 0;
+        try {
+            while (iteration < maxIterations) {
+                iteration++;
+                double[] current = ranks;
+
+                // contributions, and the rank of the publications citing nothing
+                double dangling = sum(pool, n, chunk, (from, to) -> {
+                    double danglingRank = 0;
+                    for (int id = from; id < to; id++) {
+                        if (outDegrees[id] == 0) {
+                            danglingRank += current[id];
+                            contributions[id] = 0;
+                        } else {
+                            contributions[id] = current[id] / outDegrees[id];
+                        }
+                    }
+                    return danglingRank;
+                });
+
+                double base = (1 - damping) / n + damping * dangling / n;
+                double change = sum(pool, n, chunk, (from, to) -> {
+                    double l1 = 0;
+                    for (int id = from; id < to; id++) {
+                        double rank = 0;
+                        for (int i = 0, inDegree = index.inDegree(id); i < inDegree; i++)
+                            rank += contributions[index.citerAt(id, i)];
+                        rank = base + damping * rank;
+                        l1 += Math.abs(rank - current[id]);
+                        next[id] = rank;
+                    }
+                    return l1;
+                });
+
+                System.arraycopy(next, 0, ranks, 0, n);
+                System.out.format("pagerank iteration %d: L1 change %.3e\n", iteration, change);
+                if (change < tolerance)
+                    break;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("pagerank interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        for (int id = 0; id < n; id++)
+            ranks[id] *= n;
+        return new CitationRank(index, ranks, iteration);
+    }
+
+    private interface ChunkTask {
+        double run(int from, int to);
+    }
+
+    // runs the task on every chunk and sums the results in chunk order
+    private static double sum(ExecutorService pool, int n, int chunk, ChunkTask task) throws InterruptedException, ExecutionException {
+        List<Future<Double>> parts = new ArrayList<>(NUM_CHUNKS);
+        for (int from = 0; from < n; from += chunk) {
+            int first = from;
+            int to = Math.min(n, from + chunk);
+            parts.add(pool.submit(() -> task.run(first, to)));
+        }
+        double sum = 0;
+        for (Future<Double> part : parts)
+            sum += part.get();
+        return sum;
+    }
+
+    public int getNumIterations() {
+        return numIterations;
+    }
+
+    public double scoreOf(int id) {
+        return scores[id];
+    }
+
+    /**
+     * @return The score of the publication with the given key, 0 if it is not in the DB.
+     */
+    public double scoreOf(String key) {
+        int id = index.idOf(key);
+        return id >= 0 ? scores[id] : 0;
+    }
+}
@@ -0,0 +1,93 @@
+import org.dblp.mmdb.Person;
+import org.dblp.mmdb.PersonName;
+import org.dblp.mmdb.Publication;
+
+import java.util.*;
+
+/**
+ * Collaborations of one author, counted over its publications: for every coauthor the number of
+ * shared publications and the first and last year they published together. Coauthors are
+ * numbered in order of appearance, the counters are parallel int arrays indexed by that number.
+ */
+public class CoauthorCounter {
+
+    private final String pid;
+    private final StringIntHashMap slots = new StringIntHashMap();
+    private final List<String> coauthorPids = new ArrayList<>();
+    private int[] counts = new int[16];
+    private int[] firstYears = new int[16];
+    private int[] lastYears = new int[16];
+    // number of the last publication counted for the coauthor, to count a publication once
+    private int[] lastPublications = new int[16];
+    private int numPublications = 0;
+
+    public CoauthorCounter(String pid) {
+        this.pid = pid;
+    }
+
+    /**
+     * Counts the coauthors of the given publication of the author, each once even if listed
+     * several times.
+     */
+    public void addPublication(Publication publication) {
+        int year = publication.getYear();
+        numPublications++;
+        for (PersonName name : publication.getNames()) {
+            Person person = name.getPerson();
+            if (person == null || person.getPid().equals(pid))
+                continue;
+            add(person.getPid(), year);
+        }
+    }
+
+    private void add(String coauthorPid, int year) {
+        int slot = slots.getOrDefault(coauthorPid, -1);
+        if (slot < 0) {
+            slot = coauthorPids.size();
+            slots.put(coauthorPid, slot);
+            coauthorPids.add(coauthorPid);
+            if (slot == counts.length) {
+                counts = Arrays.copyOf(counts, slot * 2);
+                firstYears = Arrays.copyOf(firstYears, slot * 2);
+                lastYears = Arrays.copyOf(lastYears, slot * 2);
+                lastPublications = Arrays.copyOf(lastPublications, slot * 2);
+            }
+            firstYears[slot] = Integer.MAX_VALUE;
+        } else if (lastPublications[slot] == numPublications) {
+            // listed twice on the publication
+            return;
+        }
+        lastPublications[slot] = numPublications;
+        counts[slot]++;
+        // year 0 means unknown
+        if (year > 0) {
+            firstYears[slot] = Math.min(firstYears[slot], year);
+            lastYears[slot] = Math.max(lastYears[slot], year);
+        }
+    }
+
+    public int numberOfCoauthors() {
+        return coauthorPids.size();
+    }
+
+    /**
+     * Rows of coauthor_relation.csv: < smaller PID, larger PID, shared publications, first year,
+     * last year >, so that both authors of a pair give the same row.
+     *
+     * @param onlyAsFirst Whether to only give the pairs where the author has the smaller PID, to
+     *                    get every pair once when all the authors are counted.
+     */
+    public List<List<String>> generateCSVEntries(boolean onlyAsFirst) {
+        List<List<String>> entries = new ArrayList<>();
+        for (int slot = 0; slot < coauthorPids.size(); slot++) {
+            String coauthorPid = coauthorPids.get(slot);
+            boolean first = pid.compareTo(coauthorPid) < 0;
+            if (onlyAsFirst && !first)
+                continue;
+            boolean known = firstYears[slot] != Integer.MAX_VALUE;
+            entries.add(Arrays.asList(first ? pid : coauthorPid, first ? coauthorPid : pid, String.valueOf(counts[slot]),
+                    known ? String.valueOf(firstYears[slot]) : "", known ? String.valueOf(lastYears[slot]) : ""));
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,167 @@
+import org.dblp.mmdb.Person;
+import org.dblp.mmdb.PersonName;
+import org.dblp.mmdb.Publication;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * Coauthor graph of the DB in compressed sparse row form, built once from the publications.
+ * Persons get dense int ids in PID order; the coauthors of person {@code id} are
+ * {@code neighbors[offsets[id]] .. neighbors[offsets[id + 1] - 1]} in ascending id order, and
+ * {@code weights} holds the number of publications each pair shares at the same index. Traversals
+ * only touch int arrays, no name is looked up.
+ */
+public class CoauthorGraph {
+
+    private final Person[] persons;
+    private final String[] pids;
+    private final int[] offsets;
+    private final int[] neighbors;
+    private final int[] weights;
+
+    private CoauthorGraph(Person[] persons, String[] pids, int[] offsets, int[] neighbors, int[] weights) {
+        this.persons = persons;
+        this.pids = pids;
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+        this.weights = weights;
+    }
+
+    public static CoauthorGraph build(Collection<? extends Person> allPersons, Collection<? extends Publication> publications) {
+        Person[] persons = allPersons.toArray(new Person[0]);
+        Arrays.sort(persons, Comparator.comparing(Person::getPid));
+        String[] pids = new String[persons.length];
+        for (int i = 0; i < persons.length; i++)
+            pids[i] = persons[i].getPid();
+
+        // one (smaller id, larger id) pair per coauthorship, packed in a long
+        long[] pairs = new long[1024];
+        int numPairs = 0;
+        int[] authors = new int[16];
+        for (Publication publication : publications) {
+            int numAuthors = 0;
+            for (PersonName name : publication.getNames()) {
+                Person person = name.getPerson();
+                int id = person != null ? Arrays.binarySearch(pids, person.getPid()) : -1;
+                if (id < 0 || contains(authors, numAuthors, id))
+                    continue;
+                if (numAuthors == authors.length)
+                    authors = Arrays.copyOf(authors, numAuthors * 2);
+                authors[numAuthors++] = id;
+            }
+            for (int i = 0; i < numAuthors; i++) {
+                for (int j = i + 1; j < numAuthors; j++) {
+                    int a = Math.min(authors[i], authors[j]);
+                    int b = Math.max(authors[i], authors[j]);
+                    if (numPairs == pairs.length)
+                        pairs = Arrays.copyOf(pairs, numPairs * 2);
+                    pairs[numPairs++] = ((long) a << 32) | b;
+                }
+            }
+        }
+        return fromPairs(persons, pids, pairs, numPairs);
+    }
+
+    /**
+     * @param pids  The PIDs of the persons, sorted; a person's id is its index.
+     * @param pairs One (smaller id, larger id) pair packed in a long per publication shared by
+     *              two persons, in any order; sorted in place.
+     */
+    static CoauthorGraph fromPairs(Person[] persons, String[] pids, long[] pairs, int numPairs) {
+        Arrays.sort(pairs, 0, numPairs);
+
+        // distinct pairs and their number of shared publications
+        int numEdges = 0;
+        int[] pairWeights = new int[numPairs];
+        for (int i = 0; i < numPairs; i++) {
+            if (numEdges > 0 && pairs[numEdges - 1] == pairs[i]) {
+                pairWeights[numEdges - 1]++;
+            } else {
+                pairs[numEdges] = pairs[i];
+                pairWeights[numEdges++] = 1;
+            }
+        }
+
+        int[] offsets = new int[persons.length + 1];
+        for (int i = 0; i < numEdges; i++) {
+            offsets[(int) (pairs[i] >>> 32) + 1]++;
+            offsets[(int) pairs[i] + 1]++;
+        }
+        for (int i = 0; i < persons.length; i++)
+            offsets[i + 1] += offsets[i];
+
+        // pairs are sorted, so every neighbor list is filled in ascending id order
+        int[] neighbors = new int[2 * numEdges];
+        int[] weights = new int[2 * numEdges];
+        int[] next = Arrays.copyOf(offsets, persons.length);
+        for (int i = 0; i < numEdges; i++) {
+            int a = (int) (pairs[i] >>> 32);
+            int b = (int) pairs[i];
+            neighbors[next[a]] = b;
+            weights[next[a]++] = pairWeights[i];
+            neighbors[next[b]] = a;
+            weights[next[b]++] = pairWeights[i];
+        }
+
+        return new CoauthorGraph(persons, pids, offsets, neighbors, weights);
+    }
+
+    // the same person can be listed twice on a publication, it still shares one publication
+    private static boolean contains(int[] ids, int n, int id) {
+        for (int i = 0; i < n; i++) {
+            if (ids[i] == id)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return The number of persons.
+     */
+    public int size() {
+        return persons.length;
+    }
+
+    /**
+     * @return The number of distinct coauthor pairs.
+     */
+    public int numberOfEdges() {
+        return neighbors.length / 2;
+    }
+
+    /**
+     * @return The id of the person with the given PID, or -1 if it is not in the graph.
+     */
+    public int idOf(String pid) {
+        int id = Arrays.binarySearch(pids, pid);
+        return id >= 0 ? id : -1;
+    }
+
+    public Person personOf(int id) {
+        return persons[id];
+    }
+
+    public String pidOf(int id) {
+        return pids[id];
+    }
+
+    public int degree(int id) {
+        return offsets[id + 1] - offsets[id];
+    }
+
+    /**
+     * @return The {@code i}-th coauthor of person {@code id}, {@code 0 <= i < degree(id)}.
+     */
+    public int neighborAt(int id, int i) {
+        return neighbors[offsets[id] + i];
+    }
+
+    /**
+     * @return The number of publications person {@code id} shares with its {@code i}-th coauthor.
+     */
+    public int weightAt(int id, int i) {
+        return weights[offsets[id] + i];
+    }
+}
@@ -0,0 +1,206 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reading of the dump as shipped, {@code dblp.xml.gz} (or {@code .xz}), without a decompressed
+ * copy on disk. The format is told by the magic bytes of the file, not by its name. Decompression
+ * runs on a thread of its own ({@link PipelinedInputStream}) and overlaps with the parsing.
+ * <p>
+ * The JDK has no xz decoder, xz dumps are decompressed by the {@code xz} command, which has to be
+ * on the path. The named pipes of {@link #pipe} are made by the {@code mkfifo} command, so they are
+ * Unix only.
+ */
+public abstract class CompressedInput {
+
+    public enum Format {NONE, GZIP, XZ}
+
+    private static final byte[] GZIP_MAGIC = {(byte) 0x1F, (byte) 0x8B};
+    private static final byte[] XZ_MAGIC = {(byte) 0xFD, '7', 'z', 'X', 'Z', 0};
+
+    public static Format formatOf(String filename) throws IOException {
+        byte[] head = new byte[XZ_MAGIC.length];
+        int n;
+        try (InputStream in = new FileInputStream(filename)) {
+            n = in.readNBytes(head, 0, head.length);
+        }
+        if (startsWith(head, n, GZIP_MAGIC))
+            return Format.GZIP;
+        if (startsWith(head, n, XZ_MAGIC))
+            return Format.XZ;
+        return Format.NONE;
+    }
+
+    public static boolean isCompressed(String filename) throws IOException {
+        return formatOf(filename) != Format.NONE;
+    }
+
+    private static boolean startsWith(byte[] head, int n, byte[] magic) {
+        if (n < magic.length)
+            return false;
+        for (int i = 0; i < magic.length; i++) {
+            if (head[i] != magic[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return The decompressed content of the file, decompressed ahead on another thread; the
+     * file itself, buffered, if it is not compressed.
+     */
+    public static InputStream open(String filename) throws IOException {
+        return switch (formatOf(filename)) {
+            case NONE -> new BufferedInputStream(new FileInputStream(filename), 1 << 16);
+            case GZIP -> new PipelinedInputStream(new GZIPInputStream(new FileInputStream(filename), 1 << 16), "gunzip " + filename);
+            case XZ -> new PipelinedInputStream(xz(filename), "xz " + filename);
+        };
+    }
+
+    /**
+     * Content of a named pipe, written as the pipe is read.
+     */
+    public interface PipeContent {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * A named pipe and the thread filling it. The reader of the pipe only sees its end: a failure
+     * of the writer looks like a shorter content until {@link #checkWritten()} is called.
+     */
+    public static final class Pipe {
+
+        private final String path;
+        private final String action;
+        private Thread writer;
+        private volatile Exception failure = null;
+
+        private Pipe(String path, String action) {
+            this.path = path;
+            this.action = action;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * Waits for the writer, to be called once the reader has read the whole pipe.
+         *
+         * @throws IOException If the writer failed, the reader then got a truncated content.
+         */
+        public void checkWritten() throws IOException {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while waiting to " + action, e);
+            }
+            checkFailure();
+        }
+
+        /**
+         * Like {@link #checkWritten()} without waiting, for a reader that stopped before the end
+         * of the pipe: its own error may come from the failure of the writer.
+         */
+        public void checkFailure() throws IOException {
+            if (failure != null)
+                throw new IOException("cannot " + action + ": " + failure.getMessage(), failure);
+        }
+    }
+
+    /**
+     * Decompresses the file into a named pipe, for readers that only take a file name (the main
+     * memory DB).
+     */
+    public static Pipe openAsPipe(String filename) throws IOException {
+        return pipe(new File(filename).getName().replaceFirst("\\.(gz|xz)$", ""), "decompress " + filename, out -> {
+            try (InputStream in = open(filename)) {
+                in.transferTo(out);
+            }
+        });
+    }
+
+    /**
+     * Creates a named pipe that a thread of its own fills with the content as the reader reads
+     * it. The pipe is deleted at exit.
+     *
+     * @param name   File name of the pipe, in a new temporary directory.
+     * @param action What the thread does, e.g. {@code decompress dblp.xml.gz}, for its name and
+     *               its error message.
+     */
+    public static Pipe pipe(String name, String action, PipeContent content) throws IOException {
+        Path directory = Files.createTempDirectory("dblp");
+        Path path = directory.resolve(name);
+        try {
+            Process mkfifo = new ProcessBuilder("mkfifo", path.toString()).inheritIO().start();
+            if (mkfifo.waitFor() != 0)
+                throw new IOException("mkfifo failed for " + path);
+        } catch (IOException e) {
+            throw new IOException("cannot create a named pipe (needs the mkfifo command, Unix only): " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while creating " + path, e);
+        }
+        path.toFile().deleteOnExit();
+        directory.toFile().deleteOnExit();
+
+        Pipe pipe = new Pipe(path.toString(), action);
+        pipe.writer = new Thread(() -> {
+            // opening the pipe blocks until the reader opens it
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(path.toFile()), 1 << 16)) {
+                content.writeTo(out);
+            } catch (IOException | RuntimeException e) {
+                pipe.failure = e;
+            }
+        }, action);
+        pipe.writer.setDaemon(true);
+        pipe.writer.start();
+        return pipe;
+    }
+
+    private static InputStream xz(String filename) throws IOException {
+        Process process;
+        try {
+            process = new ProcessBuilder("xz", "--decompress", "--stdout", filename)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        } catch (IOException e) {
+            throw new IOException("cannot run xz to decompress " + filename + ": " + e.getMessage(), e);
+        }
+        // a failure of xz shows at the end of its output
+        return new FilterInputStream(process.getInputStream()) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n < 0)
+                    checkExitValue();
+                return n;
+            }
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b < 0)
+                    checkExitValue();
+                return b;
+            }
+
+            private void checkExitValue() throws IOException {
+                try {
+                    if (process.waitFor() != 0)
+                        throw new IOException("xz failed to decompress " + filename);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("interrupted while decompressing " + filename, e);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                super.close();
+                process.destroy();
+            }
+        };
+    }
+}
@@ -0,0 +1,49 @@
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The contexts (journals and conferences) reached by an export, indexed both by title and by
+ * key, so that finding the context of a publication is a constant-time lookup.
+ */
+public class ContextRegistry {
+
+    private final Map<String, Context> contextsByTitle = new LinkedHashMap<>();
+    private final Map<String, Context> contextsByKey = new HashMap<>();
+
+    /**
+     * Registers the given context, unless a context with the same title is already known.
+     *
+     * @return {@code true} if the context has been added.
+     */
+    public boolean add(Context context) {
+        if (contextsByTitle.putIfAbsent(context.getTitle(), context) != null)
+            return false;
+        contextsByKey.putIfAbsent(context.getKey(), context);
+        return true;
+    }
+
+    public boolean containsTitle(String title) {
+        return contextsByTitle.containsKey(title);
+    }
+
+    public Context getByTitle(String title) {
+        return contextsByTitle.get(title);
+    }
+
+    public Context getByKey(String key) {
+        return contextsByKey.get(key);
+    }
+
+    public int size() {
+        return contextsByTitle.size();
+    }
+
+    /**
+     * @return The contexts, in registration order.
+     */
+    public Collection<Context> getContexts() {
+        return contextsByTitle.values();
+    }
+}
@@ -0,0 +1,65 @@
+import org.dblp.mmdb.Publication;
+import org.dblp.mmdb.RecordDbInterface;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cache of the crossref resolutions of an export: the parent record (proceedings, book) of an
+ * {@code inproceedings}/{@code incollection} is looked up and wrapped once per crossref key, and
+ * its {@link Conference} (with the TOC list) built once, however many of its children are
+ * exported. Not thread-safe, each {@link ExportJob} has its own.
+ */
+public class CrossrefResolver {
+
+    private final RecordDbInterface dblp;
+
+    // crossref key -> parent, null for a dangling crossref
+    private final Map<String, MyPublication> parents = new HashMap<>();
+    private final Map<String, Conference> conferences = new HashMap<>();
+
+    private long hits = 0;
+    private long misses = 0;
+
+    public CrossrefResolver(RecordDbInterface dblp) {
+        this.dblp = dblp;
+    }
+
+    /**
+     * @return The publication the given key refers to, or {@code null} if there is no such
+     * publication in the DB.
+     */
+    public MyPublication resolve(String crossref) {
+        MyPublication parent = parents.get(crossref);
+        if (parent != null || parents.containsKey(crossref)) {
+            hits++;
+            return parent;
+        }
+        misses++;
+        Publication publication = dblp.getPublication(crossref);
+        parent = publication != null ? new MyPublication(publication) : null;
+        parents.put(crossref, parent);
+        return parent;
+    }
+
+    /**
+     * @return The conference context of the given proceedings, built on first use.
+     */
+    public Conference conferenceOf(MyPublication proceedings) {
+        return conferences.computeIfAbsent(proceedings.getKey(), key -> new Conference(proceedings));
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public String report() {
+        long lookups = hits + misses;
+        return String.format("crossref cache: %d lookups, %d hits (%.1f%%), %d misses, %d conferences built",
+                lookups, hits, lookups == 0 ? 0.0 : 100.0 * hits / lookups, misses, conferences.size());
+    }
+}
@@ -0,0 +1,95 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A single dblp record as read by {@link DblpStreamReader}, i.e. without going through the
+ * {@link org.dblp.mmdb.RecordDb} main memory DB. Fields keep their document order, nested markup
+ * (e.g. {@code <i>}, {@code <sub>}) is flattened into the field value.
+ */
+public class DblpRecord {
+
+    private final String tag;
+    private final String key;
+    private final String mdate;
+
+    private final List<String> fieldTags = new ArrayList<>();
+    private final List<String> fieldValues = new ArrayList<>();
+
+    public DblpRecord(String tag, String key, String mdate) {
+        this.tag = tag;
+        this.key = key;
+        this.mdate = mdate;
+    }
+
+    void addField(String fieldTag, String value) {
+        this.fieldTags.add(fieldTag);
+        this.fieldValues.add(value);
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getMdate() {
+        return mdate;
+    }
+
+    public int numberOfFields() {
+        return fieldTags.size();
+    }
+
+    public String fieldTagAt(int index) {
+        return fieldTags.get(index);
+    }
+
+    public String fieldValueAt(int index) {
+        return fieldValues.get(index);
+    }
+
+    /**
+     * Retrieves the value of the first field with the given tag.
+     *
+     * @param fieldTag The field tag name.
+     * @return The value, or the empty string if the record has no such field.
+     */
+    public String getField(String fieldTag) {
+        int idx = fieldTags.indexOf(fieldTag);
+        if (idx < 0)
+            return "";
+        return fieldValues.get(idx);
+    }
+
+    /**
+     * Retrieves the values of all fields with the given tag, in document order.
+     *
+     * @param fieldTag The field tag name.
+     * @return The values.
+     */
+    public List<String> getFields(String fieldTag) {
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < fieldTags.size(); i++) {
+            if (fieldTags.get(i).equals(fieldTag))
+                values.add(fieldValues.get(i));
+        }
+        return values;
+    }
+
+    public boolean isPersonRecord() {
+        return tag.equals("www") && key.startsWith("homepages/");
+    }
+
+    public String getPid() {
+        return key.substring("homepages/".length());
+    }
+
+    public List<String> getNames() {
+        List<String> names = getFields("author");
+        if (names.isEmpty())
+            names = getFields("editor");
+        return names;
+    }
+}
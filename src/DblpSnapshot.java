@@ -0,0 +1,154 @@
+import javax.xml.stream.XMLStreamException;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary snapshot of all the records of a dblp dump. It is written once from a
+ * {@link RecordSource} (usually the xml) and read back through a memory-mapped
+ * {@link DblpSnapshotReader}, so later runs don't have to parse the xml again.
+ * <p>
+ * Layout (big endian):
+ * <pre>
+ * header:  magic "DBLPSNAP", int version, long number of records, long offset of the tag table,
+ *          long length and long last modification time of the xml it was written from
+ * record:  int byte length of the rest of the record,
+ *          short tag id, string key, string mdate, short number of fields,
+ *          number of fields x (short tag id, string value)
+ * tags:    short number of tags, number of tags x string
+ * string:  int byte length, UTF-8 bytes
+ * </pre>
+ * Record and field tag names are stored once in the tag table and referenced by id. The length and
+ * modification time of the xml tell whether a snapshot is still the one of the dump on disk (see
+ * {@link #isUpToDate(String, String)}).
+ */
+public abstract class DblpSnapshot {
+
+    static final byte[] MAGIC = "DBLPSNAP".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = MAGIC.length + Integer.BYTES + 4 * Long.BYTES;
+
+    public static boolean exists(String snapshotFilename) {
+        return new File(snapshotFilename).isFile();
+    }
+
+    /**
+     * @return Whether the snapshot exists and was written from the xml file as it is now (same
+     * length and modification time).
+     */
+    public static boolean isUpToDate(String snapshotFilename, String xmlFilename) throws IOException {
+        if (!exists(snapshotFilename))
+            return false;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(snapshotFilename))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC) || in.readInt() != VERSION)
+                return false;
+            in.readLong();
+            in.readLong();
+            File xml = new File(xmlFilename);
+            return in.readLong() == xml.length() && in.readLong() == xml.lastModified();
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes all the records of the given source, read from the xml file, to a new snapshot file.
+     *
+     * @return The number of records written.
+     */
+    public static long write(RecordSource source, String xmlFilename, String snapshotFilename) throws IOException, XMLStreamException {
+        // stamped before the records are read, a dump replaced meanwhile doesn't match
+        File xml = new File(xmlFilename);
+        long xmlLength = xml.length();
+        long xmlLastModified = xml.lastModified();
+
+        Map<String, Integer> tagIds = new HashMap<>();
+        List<String> tags = new ArrayList<>();
+        long numRecords = 0;
+
+        File tmp = new File(snapshotFilename + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 20))) {
+            // header, patched once all the records are written
+            out.write(new byte[HEADER_SIZE]);
+
+            ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(4096);
+            DataOutputStream recordOut = new DataOutputStream(recordBytes);
+            DblpRecord record;
+            while ((record = source.next()) != null) {
+                recordBytes.reset();
+                recordOut.writeShort(tagId(record.getTag(), tagIds, tags));
+                writeString(recordOut, record.getKey());
+                writeString(recordOut, record.getMdate());
+                recordOut.writeShort(record.numberOfFields());
+                for (int i = 0; i < record.numberOfFields(); i++) {
+                    recordOut.writeShort(tagId(record.fieldTagAt(i), tagIds, tags));
+                    writeString(recordOut, record.fieldValueAt(i));
+                }
+                recordOut.flush();
+
+                out.writeInt(recordBytes.size());
+                recordBytes.writeTo(out);
+                numRecords++;
+            }
+
+            out.writeShort(tags.size());
+            for (String tag : tags)
+                writeString(out, tag);
+        }
+
+        long tagTableOffset;
+        try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            tagTableOffset = channel.size() - tagTableSize(tags);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+            header.put(MAGIC).putInt(VERSION).putLong(numRecords).putLong(tagTableOffset)
+                    .putLong(xmlLength).putLong(xmlLastModified).flip();
+            channel.write(header, 0);
+        }
+
+        // a crash leaves either the old snapshot or the new one
+        Files.move(tmp.toPath(), Path.of(snapshotFilename), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return numRecords;
+    }
+
+    public static DblpSnapshotReader open(String snapshotFilename) throws IOException {
+        return new DblpSnapshotReader(Path.of(snapshotFilename));
+    }
+
+    private static int tagId(String tag, Map<String, Integer> tagIds, List<String> tags) {
+        Integer id = tagIds.get(tag);
+        if (id == null) {
+            id = tags.size();
+            tagIds.put(tag, id);
+            tags.add(tag);
+        }
+        return id;
+    }
+
+    private static long tagTableSize(List<String> tags) {
+        long size = Short.BYTES;
+        for (String tag : tags)
+            size += Integer.BYTES + tag.getBytes(StandardCharsets.UTF_8).length;
+        return size;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null)
+            s = "";
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
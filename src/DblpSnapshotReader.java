@@ -0,0 +1,128 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Memory-mapped reader of a {@link DblpSnapshot} file. The file is mapped in windows of at most
+ * {@link #WINDOW_SIZE} bytes (a single mapping can't exceed 2GB), a new window is mapped whenever
+ * the next record does not fit in the current one.
+ */
+public class DblpSnapshotReader implements RecordSource {
+
+    private static final long WINDOW_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final long numRecords;
+    private final long tagTableOffset;
+    private final String[] tags;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position = DblpSnapshot.HEADER_SIZE;
+
+    private byte[] stringBuffer = new byte[256];
+
+    DblpSnapshotReader(Path snapshot) throws IOException {
+        this.channel = FileChannel.open(snapshot, StandardOpenOption.READ);
+
+        map(0, DblpSnapshot.HEADER_SIZE);
+        byte[] magic = new byte[DblpSnapshot.MAGIC.length];
+        window.get(magic);
+        if (!Arrays.equals(magic, DblpSnapshot.MAGIC))
+            throw new IOException(snapshot + " is not a dblp snapshot");
+        int version = window.getInt();
+        if (version != DblpSnapshot.VERSION)
+            throw new IOException("unsupported snapshot version " + version + " in " + snapshot);
+        this.numRecords = window.getLong();
+        this.tagTableOffset = window.getLong();
+        // the length and modification time of the xml are only read by DblpSnapshot#isUpToDate
+
+        map(tagTableOffset, channel.size() - tagTableOffset);
+        this.tags = new String[window.getShort()];
+        for (int i = 0; i < tags.length; i++)
+            tags[i] = readString();
+
+        map(position, Math.min(WINDOW_SIZE, tagTableOffset - position));
+    }
+
+    public long numberOfRecords() {
+        return numRecords;
+    }
+
+    @Override
+    public DblpRecord next() throws IOException {
+        // the tag table follows the last record
+        if (position >= tagTableOffset)
+            return null;
+
+        ensureMapped(Integer.BYTES);
+        int length = window.getInt();
+        position += Integer.BYTES;
+        ensureMapped(length);
+
+        DblpRecord record = new DblpRecord(tags[window.getShort()], readString(), readString());
+        int numFields = window.getShort();
+        for (int i = 0; i < numFields; i++)
+            record.addField(tags[window.getShort()], readString());
+
+        position += length;
+        return record;
+    }
+
+    // records are length-prefixed, skipping doesn't decode them
+    @Override
+    public long skip(long numRecordsToSkip) throws IOException {
+        long skipped = 0;
+        while (skipped < numRecordsToSkip && position < tagTableOffset) {
+            ensureMapped(Integer.BYTES);
+            int length = window.getInt();
+            position += Integer.BYTES + length;
+            ensureMapped(0);
+            window.position((int) (position - windowStart));
+            skipped++;
+        }
+        return skipped;
+    }
+
+    // the file offset of the next record
+    @Override
+    public long position() {
+        return position;
+    }
+
+    @Override
+    public void seek(long position) throws IOException {
+        if (position < DblpSnapshot.HEADER_SIZE || position > tagTableOffset)
+            throw new IOException("no record at offset " + position + " of the snapshot");
+        this.position = position;
+        map(position, Math.min(WINDOW_SIZE, tagTableOffset - position));
+    }
+
+    private void ensureMapped(long length) throws IOException {
+        long windowEnd = windowStart + window.limit();
+        if (position + length > windowEnd)
+            map(position, Math.max(length, Math.min(WINDOW_SIZE, tagTableOffset - position)));
+    }
+
+    private void map(long start, long length) throws IOException {
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        windowStart = start;
+    }
+
+    private String readString() {
+        int length = window.getInt();
+        if (length > stringBuffer.length)
+            stringBuffer = new byte[Math.max(length, stringBuffer.length * 2)];
+        window.get(stringBuffer, 0, length);
+        return new String(stringBuffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
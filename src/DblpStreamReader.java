@@ -0,0 +1,135 @@
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+
+/**
+ * Pull (StAX) reader of the dblp xml dump. Records are handed out one at a time, so that nothing
+ * but the current record has to stay in main memory.
+ */
+public class DblpStreamReader implements RecordSource {
+
+    private final InputStream in;
+    private final XMLStreamReader reader;
+
+    // 1 = <dblp>, 2 = record, 3 = field, > 3 = markup inside a field
+    private int depth = 0;
+    private RecordFilter filter = null;
+
+    public DblpStreamReader(String dblpXmlFilename, String dblpDtdFilename) throws IOException, XMLStreamException {
+        // a gzip or xz dump is decompressed on another thread while it is parsed
+        this(CompressedInput.open(dblpXmlFilename), dblpXmlFilename, dblpDtdFilename);
+    }
+
+    public DblpStreamReader(InputStream xml, String systemId, String dblpDtdFilename) throws XMLStreamException {
+        // the dump refers to "dblp.dtd", always resolve it to the one given on the command line
+        this(xml, systemId, (publicID, systemID, baseURI, namespace) -> {
+            try {
+                return new BufferedInputStream(new FileInputStream(dblpDtdFilename));
+            } catch (FileNotFoundException e) {
+                throw new XMLStreamException("cannot read dblp DTD: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Reader resolving the DTD to the given bytes, e.g. to parse many pieces of the dump without
+     * reading the DTD file for each one.
+     */
+    public DblpStreamReader(InputStream xml, String systemId, byte[] dblpDtd) throws XMLStreamException {
+        this(xml, systemId, (publicID, systemID, baseURI, namespace) -> new ByteArrayInputStream(dblpDtd));
+    }
+
+    private DblpStreamReader(InputStream xml, String systemId, XMLResolver dtdResolver) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, true);
+        factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, true);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        factory.setXMLResolver(dtdResolver);
+        this.in = xml;
+        this.reader = factory.createXMLStreamReader(systemId, xml);
+    }
+
+    /**
+     * Only hands out the records accepted by the filter, the records rejected on their tag or key
+     * are skipped without collecting their fields.
+     */
+    public void setFilter(RecordFilter filter) {
+        this.filter = filter != null && !filter.isEmpty() ? filter : null;
+    }
+
+    /**
+     * Reads the next record of the dump.
+     *
+     * @return The record, or {@code null} if the end of the dump has been reached.
+     */
+    @Override
+    public DblpRecord next() throws XMLStreamException {
+        DblpRecord record = null;
+        String fieldTag = null;
+        StringBuilder fieldValue = new StringBuilder();
+
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT -> {
+                    depth++;
+                    if (depth == 2) {
+                        String tag = reader.getLocalName();
+                        String key = reader.getAttributeValue(null, "key");
+                        if (filter != null && !filter.acceptsHeader(tag, key)) {
+                            skipElement();
+                            continue;
+                        }
+                        record = new DblpRecord(tag, key, reader.getAttributeValue(null, "mdate"));
+                    } else if (depth == 3) {
+                        fieldTag = reader.getLocalName();
+                        fieldValue.setLength(0);
+                    }
+                }
+                case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE -> {
+                    if (depth >= 3)
+                        fieldValue.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                }
+                case XMLStreamConstants.END_ELEMENT -> {
+                    depth--;
+                    if (depth == 2 && record != null) {
+                        record.addField(fieldTag, fieldValue.toString());
+                    } else if (depth == 1 && record != null) {
+                        if (filter == null || filter.accepts(record))
+                            return record;
+                        record = null;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return null;
+    }
+
+    // skips the rest of the current element, up to and including its end tag
+    private void skipElement() throws XMLStreamException {
+        int level = 1;
+        while (level > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT)
+                level++;
+            else if (event == XMLStreamConstants.END_ELEMENT)
+                level--;
+        }
+        depth--;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            reader.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,225 @@
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * State of a {@link StreamingExporter} after some records of its publication pass: the number of
+ * records consumed and the position of the next one in the input, the position of every output
+ * file and the working set needed to go on (journal contexts, counters). Written atomically
+ * (temporary file then rename), so a crash while checkpointing leaves the previous checkpoint
+ * intact.
+ * <p>
+ * Two files go with the checkpoint: the index of the first pass ({@link #INDEX_FILE_NAME}), written
+ * once so a resumed export doesn't read the person records again, and the PIDs of the
+ * authors already written ({@link #AUTHORS_FILE_NAME}), only appended to at every checkpoint; the
+ * checkpoint records how much of it is valid.
+ */
+public class ExportCheckpoint {
+
+    public static final String FILE_NAME = "export.checkpoint";
+    public static final String INDEX_FILE_NAME = "export.index";
+    public static final String AUTHORS_FILE_NAME = "export.authors";
+
+    private static final int MAGIC = 0x44424C43;
+    private static final int INDEX_MAGIC = 0x44424C49;
+    private static final int VERSION = 2;
+
+    long numRecords;
+    // position of the record numRecords in the input, see RecordSource#position()
+    long position;
+    boolean gzip;
+    // description of the record filter of the export, empty without one
+    String filter = "";
+    final Map<String, CSVSink.Position> sinkPositions = new LinkedHashMap<>();
+    final Map<String, String> journalKeysByTitle = new HashMap<>();
+    // bytes of the authors file written before this checkpoint
+    long authorPidsLength;
+    long numPublications;
+    long numUnresolvedNames;
+
+    public static boolean exists(String resultsDirectoryPath) {
+        return new File(resultsDirectoryPath + FILE_NAME).isFile();
+    }
+
+    public static void delete(String resultsDirectoryPath) {
+        new File(resultsDirectoryPath + FILE_NAME).delete();
+        new File(resultsDirectoryPath + INDEX_FILE_NAME).delete();
+        new File(resultsDirectoryPath + AUTHORS_FILE_NAME).delete();
+    }
+
+    void write(String resultsDirectoryPath) throws IOException {
+        File file = new File(resultsDirectoryPath + FILE_NAME);
+        File tmp = new File(resultsDirectoryPath + FILE_NAME + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 20))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(numRecords);
+            out.writeLong(position);
+            out.writeBoolean(gzip);
+            out.writeUTF(filter);
+            out.writeLong(authorPidsLength);
+            out.writeLong(numPublications);
+            out.writeLong(numUnresolvedNames);
+
+            out.writeInt(sinkPositions.size());
+            for (Map.Entry<String, CSVSink.Position> sink : sinkPositions.entrySet()) {
+                out.writeUTF(sink.getKey());
+                out.writeLong(sink.getValue().getOffset());
+                out.writeLong(sink.getValue().getNumRows());
+            }
+            out.writeInt(journalKeysByTitle.size());
+            for (Map.Entry<String, String> journal : journalKeysByTitle.entrySet()) {
+                out.writeUTF(journal.getKey());
+                out.writeUTF(journal.getValue());
+            }
+
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        replace(tmp, file);
+    }
+
+    static ExportCheckpoint read(String resultsDirectoryPath) throws IOException {
+        String fileName = resultsDirectoryPath + FILE_NAME;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName), 1 << 20))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException(fileName + " is not an export checkpoint");
+            int version = in.readInt();
+            if (version != VERSION)
+                throw new IOException("unsupported checkpoint version " + version + " in " + fileName);
+
+            ExportCheckpoint checkpoint = new ExportCheckpoint();
+            checkpoint.numRecords = in.readLong();
+            checkpoint.position = in.readLong();
+            checkpoint.gzip = in.readBoolean();
+            checkpoint.filter = in.readUTF();
+            checkpoint.authorPidsLength = in.readLong();
+            checkpoint.numPublications = in.readLong();
+            checkpoint.numUnresolvedNames = in.readLong();
+
+            for (int i = in.readInt(); i > 0; i--)
+                checkpoint.sinkPositions.put(in.readUTF(), new CSVSink.Position(in.readLong(), in.readLong()));
+            for (int i = in.readInt(); i > 0; i--)
+                checkpoint.journalKeysByTitle.put(in.readUTF(), in.readUTF());
+            return checkpoint;
+        } catch (EOFException e) {
+            throw new IOException("truncated export checkpoint " + fileName, e);
+        }
+    }
+
+    /**
+     * Writes the index of the first pass: one entry per person record (the PID, the homepage url,
+     * then the names, the primary one first), then the keys of the proceedings.
+     */
+    static void writeIndex(String resultsDirectoryPath, List<List<String>> persons, Collection<String> proceedingsKeys) throws IOException {
+        File file = new File(resultsDirectoryPath + INDEX_FILE_NAME);
+        File tmp = new File(resultsDirectoryPath + INDEX_FILE_NAME + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 20))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(persons.size());
+            for (List<String> person : persons) {
+                out.writeShort(person.size());
+                for (String value : person)
+                    out.writeUTF(value != null ? value : "");
+            }
+            out.writeInt(proceedingsKeys.size());
+            for (String key : proceedingsKeys)
+                out.writeUTF(key);
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        replace(tmp, file);
+    }
+
+    /**
+     * Reads the index written by {@link #writeIndex} into the given collections.
+     *
+     * @return Whether there is an index.
+     */
+    static boolean readIndex(String resultsDirectoryPath, List<List<String>> persons, Collection<String> proceedingsKeys) throws IOException {
+        File file = new File(resultsDirectoryPath + INDEX_FILE_NAME);
+        if (!file.isFile())
+            return false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 20))) {
+            if (in.readInt() != INDEX_MAGIC)
+                throw new IOException(file + " is not an export index");
+            for (int i = in.readInt(); i > 0; i--) {
+                List<String> person = new ArrayList<>();
+                for (int j = in.readShort(); j > 0; j--)
+                    person.add(in.readUTF());
+                persons.add(person);
+            }
+            for (int i = in.readInt(); i > 0; i--)
+                proceedingsKeys.add(in.readUTF());
+            return true;
+        } catch (EOFException e) {
+            throw new IOException("truncated export index " + file, e);
+        }
+    }
+
+    /**
+     * Appends PIDs to the authors file and syncs it.
+     *
+     * @return The length of the file, to record in the next checkpoint.
+     */
+    static long appendAuthorPids(String resultsDirectoryPath, Collection<String> pids) throws IOException {
+        try (FileOutputStream fileOut = new FileOutputStream(resultsDirectoryPath + AUTHORS_FILE_NAME, true);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16))) {
+            for (String pid : pids)
+                out.writeUTF(pid);
+            out.flush();
+            fileOut.getFD().sync();
+            return fileOut.getChannel().size();
+        }
+    }
+
+    /**
+     * Reads the PIDs of the authors file up to the checkpoint, and cuts off the ones appended
+     * after it.
+     */
+    void readAuthorPids(String resultsDirectoryPath, Collection<String> pids) throws IOException {
+        Path file = Path.of(resultsDirectoryPath + AUTHORS_FILE_NAME);
+        if (authorPidsLength == 0 && !file.toFile().exists())
+            return;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            if (channel.size() < authorPidsLength)
+                throw new IOException("truncated authors file " + file);
+            channel.truncate(authorPidsLength);
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file.toFile()), 1 << 20))) {
+            for (long read = 0; read < authorPidsLength; ) {
+                String pid = in.readUTF();
+                pids.add(pid);
+                read += 2 + utfLength(pid);
+            }
+        }
+    }
+
+    // bytes of the modified UTF-8 of writeUTF
+    private static int utfLength(String s) {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            length += c >= 1 && c <= 0x7F ? 1 : c <= 0x7FF ? 2 : 3;
+        }
+        return length;
+    }
+
+    // the rename replaces the file in one step, then the directory is synced so that the rename
+    // itself survives a crash
+    private static void replace(File tmp, File file) throws IOException {
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        Path directory = file.getAbsoluteFile().toPath().getParent();
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // a directory can't be opened on Windows, its metadata is written with the rename there
+        }
+    }
+}
@@ -0,0 +1,243 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Incremental export against the manifest of a previous one. Every row written by a full export
+ * is recorded in a new manifest as (identity, content) fingerprints plus its identity columns,
+ * the first ones of the row, as many as the sink declares: the key for node files ({@link #NODE}),
+ * the start and end for relationship files ({@link #RELATIONSHIP}, the other columns are
+ * properties, e.g. the counts of {@code coauthor_relation.csv}). Given the
+ * manifest of the previous dump only the new and changed rows are written to the usual files
+ * (to be upserted), and the rows gone since then are listed in {@code <file>.delete.csv}.
+ * <p>
+ * Changes are detected on the rows rather than on the record {@code mdate}: a row joins several
+ * records (e.g. the name of an author comes from the person record, not from the publication),
+ * so an unchanged {@code mdate} doesn't mean an unchanged row.
+ * <p>
+ * Manifest layout (gzipped, big endian): int magic, int version, then a sequence of entries
+ * {@code byte type}: {@link #FILE} (short file id, UTF name), {@link #ROW} (short file id,
+ * long identity fingerprint, long content fingerprint, byte number of identity columns, UTF
+ * columns) and a final {@link #END}.
+ */
+public class ExportDelta {
+
+    public static final String MANIFEST_FILE_NAME = "export.manifest";
+
+    /**
+     * Number of identity columns of a node file: its key.
+     */
+    public static final int NODE = 1;
+    /**
+     * Number of identity columns of a relationship file: its start and end.
+     */
+    public static final int RELATIONSHIP = 2;
+
+    private static final int MAGIC = 0x44424C4D;
+    // 2: fingerprints with the field lengths, see CSVSink#fingerprint
+    private static final int VERSION = 2;
+    private static final byte FILE = 0;
+    private static final byte ROW = 1;
+    private static final byte END = 2;
+
+    private final String resultsDirectoryPath;
+    private final String previousManifest;
+    private final boolean gzip;
+
+    // file name -> identity fingerprint -> content fingerprint of the previous export
+    private final Map<String, LongLongHashMap> previousRows = new HashMap<>();
+    // file name -> identity fingerprints written by this export
+    private final Map<String, LongHashSet> currentRows = new HashMap<>();
+    private final Map<String, long[]> counters = new LinkedHashMap<>();
+    private final List<String> fileNames = new ArrayList<>();
+
+    private final File manifestFile;
+    private final File tmpManifestFile;
+    private final DataOutputStream manifest;
+
+    /**
+     * @param previousManifest Manifest of the previous export, {@code null} to write every row
+     *                         (and only start the chain of manifests).
+     */
+    public ExportDelta(String resultsDirectoryPath, String previousManifest, boolean gzip) throws IOException {
+        this.resultsDirectoryPath = resultsDirectoryPath;
+        this.previousManifest = previousManifest;
+        this.gzip = gzip;
+        if (previousManifest != null)
+            loadPreviousManifest();
+
+        this.manifestFile = new File(resultsDirectoryPath + MANIFEST_FILE_NAME);
+        this.tmpManifestFile = new File(resultsDirectoryPath + MANIFEST_FILE_NAME + ".tmp");
+        this.manifest = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tmpManifestFile), 1 << 16), 1 << 20));
+        manifest.writeInt(MAGIC);
+        manifest.writeInt(VERSION);
+    }
+
+    public boolean hasPreviousManifest() {
+        return previousManifest != null;
+    }
+
+    /**
+     * @param identityColumns Number of leading columns identifying a row of the file, {@link #NODE}
+     *                        or {@link #RELATIONSHIP}.
+     * @return The format keeping only the new and changed rows of the file (all of them without a
+     * previous manifest).
+     */
+    public synchronized RowFormat forFile(String fileName, int identityColumns) throws IOException {
+        int fileId = fileNames.size();
+        fileNames.add(fileName);
+        manifest.writeByte(FILE);
+        manifest.writeShort(fileId);
+        manifest.writeUTF(fileName);
+
+        LongLongHashMap previous = previousRows.getOrDefault(fileName, new LongLongHashMap(16));
+        LongHashSet current = new LongHashSet();
+        currentRows.put(fileName, current);
+        // upserted, unchanged
+        long[] counter = new long[2];
+        counters.put(fileName, counter);
+
+        return new RowFormat() {
+            @Override
+            public List<String> header() {
+                return null;
+            }
+
+            @Override
+            public List<String> format(List<String> row) {
+                List<String> identity = row.subList(0, Math.min(identityColumns, row.size()));
+                long identityFingerprint = CSVSink.fingerprint(identity);
+                long contentFingerprint = CSVSink.fingerprint(row);
+                synchronized (ExportDelta.this) {
+                    // first row wins, as with the fingerprint dedup of the sinks
+                    if (!current.add(identityFingerprint))
+                        return null;
+                    writeManifestRow(fileId, identityFingerprint, contentFingerprint, identity);
+                    if (previous.containsKey(identityFingerprint)
+                            && previous.getOrDefault(identityFingerprint, 0) == contentFingerprint) {
+                        counter[1]++;
+                        return null;
+                    }
+                    counter[0]++;
+                    return row;
+                }
+            }
+        };
+    }
+
+    /**
+     * Completes the manifest and, when there is a previous one, writes the delete files.
+     *
+     * @return The names of the files written in the results directory.
+     */
+    public synchronized List<String> finish() throws IOException {
+        manifest.writeByte(END);
+        manifest.close();
+        // a crash leaves either the previous manifest or the new one, never none to diff against
+        Files.move(tmpManifestFile.toPath(), manifestFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        List<String> written = new ArrayList<>();
+        written.add(MANIFEST_FILE_NAME);
+        if (previousManifest != null)
+            written.addAll(writeDeletes());
+
+        counters.forEach((fileName, counter) -> System.out.format("%s: %d new or changed, %d unchanged\n",
+                fileName, counter[0], counter[1]));
+        return written;
+    }
+
+    private void writeManifestRow(int fileId, long identityFingerprint, long contentFingerprint, List<String> identity) {
+        try {
+            manifest.writeByte(ROW);
+            manifest.writeShort(fileId);
+            manifest.writeLong(identityFingerprint);
+            manifest.writeLong(contentFingerprint);
+            manifest.writeByte(identity.size());
+            for (String column : identity)
+                manifest.writeUTF(column != null ? column : "");
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot write " + tmpManifestFile, e);
+        }
+    }
+
+    private void loadPreviousManifest() throws IOException {
+        readManifest(previousManifest, (fileName, identityFingerprint, contentFingerprint, identity) ->
+                previousRows.computeIfAbsent(fileName, f -> new LongLongHashMap()).put(identityFingerprint, contentFingerprint));
+        System.out.format("previous manifest %s: %d files\n", previousManifest, previousRows.size());
+    }
+
+    // rows of the previous export that this one didn't write
+    private List<String> writeDeletes() throws IOException {
+        Map<String, CSVSink> deletes = new LinkedHashMap<>();
+        try {
+            readManifest(previousManifest, (fileName, identityFingerprint, contentFingerprint, identity) -> {
+                LongHashSet current = currentRows.get(fileName);
+                // a file this export didn't write at all is left alone
+                if (current == null || current.contains(identityFingerprint))
+                    return;
+                CSVSink sink = deletes.get(fileName);
+                if (sink == null) {
+                    sink = new CSVSink(resultsDirectoryPath + deleteFileName(fileName), false, gzip);
+                    deletes.put(fileName, sink);
+                }
+                sink.add(identity);
+            });
+        } finally {
+            for (CSVSink sink : deletes.values()) {
+                sink.close();
+                System.out.println(sink.report());
+            }
+        }
+
+        List<String> written = new ArrayList<>();
+        for (CSVSink sink : deletes.values())
+            written.add(new File(sink.getFileName()).getName());
+        return written;
+    }
+
+    private static String deleteFileName(String fileName) {
+        return fileName.endsWith(".csv") ? fileName.substring(0, fileName.length() - 4) + ".delete.csv" : fileName + ".delete";
+    }
+
+    private interface ManifestRowVisitor {
+        void visit(String fileName, long identityFingerprint, long contentFingerprint, List<String> identity) throws IOException;
+    }
+
+    private static void readManifest(String manifestFilename, ManifestRowVisitor visitor) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(manifestFilename), 1 << 16), 1 << 20))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException(manifestFilename + " is not an export manifest");
+            int version = in.readInt();
+            if (version != VERSION)
+                throw new IOException("unsupported export manifest version " + version + " in " + manifestFilename);
+
+            List<String> fileNames = new ArrayList<>();
+            byte type;
+            while ((type = in.readByte()) != END) {
+                if (type == FILE) {
+                    int fileId = in.readShort();
+                    String fileName = in.readUTF();
+                    while (fileNames.size() <= fileId)
+                        fileNames.add(null);
+                    fileNames.set(fileId, fileName);
+                } else if (type == ROW) {
+                    String fileName = fileNames.get(in.readShort());
+                    long identityFingerprint = in.readLong();
+                    long contentFingerprint = in.readLong();
+                    int numColumns = in.readByte();
+                    List<String> identity = new ArrayList<>(numColumns);
+                    for (int i = 0; i < numColumns; i++)
+                        identity.add(in.readUTF());
+                    visitor.visit(fileName, identityFingerprint, contentFingerprint, identity);
+                } else {
+                    throw new IOException("corrupted export manifest " + manifestFilename);
+                }
+            }
+        } catch (EOFException e) {
+            throw new IOException("truncated export manifest " + manifestFilename, e);
+        }
+    }
+}
@@ -0,0 +1,701 @@
+import org.dblp.mmdb.Person;
+import org.dblp.mmdb.PersonName;
+import org.dblp.mmdb.Publication;
+import org.dblp.mmdb.RecordDbInterface;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * One sampling export over an already loaded dblp main memory DB: starting from some seed authors
+ * the coauthor graph is crawled, then the publications, citations and contexts reached are
+ * written as CSV files in the results directory. A full export ({@link #setFullExport(boolean)})
+ * writes the whole DB instead.
+ * <p>
+ * All the state of the export lives in the job, the {@link RecordDbInterface} is only read, so
+ * several jobs can run concurrently over the same DB.
+ */
+public class ExportJob {
+
+    public static final int DEFAULT_MAX_NUM_CITATIONS_PER_PUB = 10;
+    public static final int DEFAULT_MAX_NUM_PUBS_PER_CONTEXT = 10;
+    public static final int DEFAULT_INIT_NUM_AUTHORS = 10;
+    public static final int DEFAULT_MAX_NUM_VISITING_AUTHORS = 200;
+
+    private final RecordDbInterface dblp;
+    private final String resultsDirectoryPath;
+
+    private List<String> seedAuthorNames = new ArrayList<>();
+    private int maxNumCitationsPerPub = DEFAULT_MAX_NUM_CITATIONS_PER_PUB;
+    private int maxNumPubsPerContext = DEFAULT_MAX_NUM_PUBS_PER_CONTEXT;
+    private int initNumAuthors = DEFAULT_INIT_NUM_AUTHORS;
+    private int maxNumVisitingAuthors = DEFAULT_MAX_NUM_VISITING_AUTHORS;
+    private CitationIndex citationIndex = null;
+    private CoauthorGraph coauthorGraph = null;
+    private int maxNumCitersPerPub = 0;
+    private CitationLeaderboard citationLeaderboard = null;
+    private CitationRank citationRank = null;
+    private int numThreads = 1;
+    private Random random = new Random();
+
+    // Unique entries to be inserted in the db, written as soon as they are produced
+    private CSVSink author_entries;
+    private final Set<List<String>> association_entries;
+    private CSVSink author_pub_entries; // relation author->PRODUCE->publication
+    private CSVSink publication_entries;
+    private CSVSink context_entries;
+    private CSVSink citation_entries;
+    private CSVSink context_pubs_entries;
+    private CSVSink author_association_entries; // relation author->AFFILIATED->association
+    private CSVSink coauthor_entries; // relation author->COAUTHOR->author
+    private CSVSink pub_author_citations_entries;
+    private CSVSink pub_in_degree_entries; // only with a citation index
+    private final List<CSVSink> sinks = new ArrayList<>();
+    private final List<String> outputFiles = new ArrayList<>();
+    private boolean gzipOutput = false;
+    private Neo4jImportFormat neo4jImportFormat = null;
+    private boolean fullExport = false;
+    private boolean writeManifest = false;
+    private String previousManifest = null;
+    private ExportDelta exportDelta = null;
+
+    // authors that we will consider (BFS over the coauthor graph)
+    private final AuthorFrontier authors = new AuthorFrontier();
+    private boolean stopAddingAuthors = false;
+    // coauthor_relation.csv rows of the crawl, written at the end between the authors of authors.csv
+    private final List<List<String>> crawledCoauthorEntries = new ArrayList<>();
+    private final Set<String> writtenAuthorPids = new HashSet<>();
+
+    // set of publications we need to insert into the database given authors
+    private final Set<MyPublication> util_pubs = new HashSet<>();
+    // contexts we need to insert into the database given authors
+    private final ContextRegistry util_contexts = new ContextRegistry();
+    // parents of the inproceedings/incollections, resolved once per crossref key
+    private final CrossrefResolver crossrefs;
+
+    public ExportJob(RecordDbInterface dblp, Set<List<String>> association_entries, String resultsDirectoryPath) {
+        this.dblp = dblp;
+        this.crossrefs = new CrossrefResolver(dblp);
+        this.association_entries = association_entries;
+        this.resultsDirectoryPath = resultsDirectoryPath.endsWith("/") ? resultsDirectoryPath : resultsDirectoryPath + "/";
+    }
+
+    /**
+     * Names of the authors the crawl starts from. If empty, the first {@code initNumAuthors}
+     * persons with an ORCID are used.
+     */
+    public void setSeedAuthorNames(List<String> seedAuthorNames) {
+        this.seedAuthorNames = new ArrayList<>(seedAuthorNames);
+    }
+
+    public void setInitNumAuthors(int initNumAuthors) {
+        this.initNumAuthors = initNumAuthors;
+    }
+
+    public void setMaxNumVisitingAuthors(int maxNumVisitingAuthors) {
+        this.maxNumVisitingAuthors = maxNumVisitingAuthors;
+    }
+
+    public void setMaxNumCitationsPerPub(int maxNumCitationsPerPub) {
+        this.maxNumCitationsPerPub = maxNumCitationsPerPub;
+    }
+
+    public void setMaxNumPubsPerContext(int maxNumPubsPerContext) {
+        this.maxNumPubsPerContext = maxNumPubsPerContext;
+    }
+
+    /**
+     * Reverse citation index of the DB, to expand the sample along incoming citations (see
+     * {@link #setMaxNumCitersPerPub(int)}) and to write the in-degree of every exported
+     * publication in {@code pub_in_degrees.csv}. Can be shared by several jobs.
+     */
+    public void setCitationIndex(CitationIndex citationIndex) {
+        this.citationIndex = citationIndex;
+    }
+
+    /**
+     * Number of publications citing a sampled publication to export with it, 0 (the default) to
+     * only follow outgoing citations. Needs a citation index.
+     */
+    public void setMaxNumCitersPerPub(int maxNumCitersPerPub) {
+        this.maxNumCitersPerPub = maxNumCitersPerPub;
+    }
+
+    /**
+     * PageRank of the publications of the DB, written as an extra column of
+     * {@code publications.csv}. Can be shared by several jobs.
+     */
+    public void setCitationRank(CitationRank citationRank) {
+        this.citationRank = citationRank;
+    }
+
+    /**
+     * Number of most cited publications per year to write in {@code citation_leaderboard.csv},
+     * counted over the citations of the whole DB (not only of the sample), 0 (the default) for no
+     * leaderboard.
+     */
+    public void setCitationLeaderboardSize(int k) {
+        this.citationLeaderboard = k > 0 ? new CitationLeaderboard(k) : null;
+    }
+
+    /**
+     * Coauthor graph of the DB, the crawl then resolves the coauthors of a publication through the
+     * persons of its names, as the graph is built, instead of looking up every name in the DB. The
+     * coauthors and their order, so the sample, are the same. Can be shared by several jobs.
+     */
+    public void setCoauthorGraph(CoauthorGraph coauthorGraph) {
+        this.coauthorGraph = coauthorGraph;
+    }
+
+    /**
+     * Number of threads expanding the authors of the coauthor crawl, 1 to crawl in the caller
+     * thread.
+     */
+    public void setNumThreads(int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+    }
+
+    /**
+     * Seed of the random choices of the export (affiliations, publication sampling), to get the
+     * same output on every run.
+     */
+    public void setRandomSeed(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Whether to gzip the CSV files on the fly ({@code .gz} is appended to their names).
+     */
+    public void setGzipOutput(boolean gzipOutput) {
+        this.gzipOutput = gzipOutput;
+    }
+
+    /**
+     * Whether to export the whole DB (every person, publication and venue, visited once) instead
+     * of the coauthor crawl sample. The seed authors and the sampling limits are ignored then.
+     */
+    public void setFullExport(boolean fullExport) {
+        this.fullExport = fullExport;
+    }
+
+    /**
+     * Whether to record a manifest of the export, for a later delta export (see
+     * {@link ExportDelta}). Only used by full exports.
+     */
+    public void setWriteManifest(boolean writeManifest) {
+        this.writeManifest = writeManifest;
+    }
+
+    /**
+     * Manifest of a previous full export: only the rows added or changed since then are written,
+     * plus delete files for the rows gone (see {@link ExportDelta}). Implies a new manifest, only
+     * used by full exports.
+     */
+    public void setPreviousManifest(String previousManifest) {
+        this.previousManifest = previousManifest;
+        this.writeManifest = true;
+    }
+
+    /**
+     * Whether to write the files in the format of {@code neo4j-admin database import} (see
+     * {@link Neo4jImportFormat}) instead of plain CSV.
+     */
+    public void setNeo4jImportFormat(boolean neo4jImport) {
+        this.neo4jImportFormat = neo4jImport ? new Neo4jImportFormat() : null;
+    }
+
+    /**
+     * @return The names of the files written in the results directory.
+     */
+    public List<String> getOutputFiles() {
+        return Collections.unmodifiableList(outputFiles);
+    }
+
+    public String getResultsDirectoryPath() {
+        return resultsDirectoryPath;
+    }
+
+    /**
+     * Checks that the options of the job go together, as {@link ExportOptions} does for the
+     * command line.
+     *
+     * @throws IllegalArgumentException If they don't.
+     */
+    public void validate() {
+        // deltas are only meaningful between complete exports, and neo4j ids are not stable across exports
+        if (writeManifest && (!fullExport || neo4jImportFormat != null))
+            throw new IllegalArgumentException("a manifest needs a full export without the neo4j import format");
+    }
+
+    public void run() throws IOException {
+        validate();
+        File resultsDirectory = new File(resultsDirectoryPath);
+        if (!resultsDirectory.isDirectory() && !resultsDirectory.mkdirs())
+            throw new IOException("cannot create results directory " + resultsDirectoryPath);
+        if (fullExport && writeManifest)
+            exportDelta = new ExportDelta(resultsDirectoryPath, previousManifest, gzipOutput);
+
+        author_entries = openSink("authors.csv", ExportDelta.NODE);
+        author_pub_entries = openSink("author_pubs_relation.csv", ExportDelta.RELATIONSHIP);
+        publication_entries = openSink("publications.csv", ExportDelta.NODE);
+        citation_entries = openSink("pub_pubs_relation.csv", ExportDelta.RELATIONSHIP);
+        context_pubs_entries = openSink("context_pubs_relation.csv", ExportDelta.RELATIONSHIP);
+        context_entries = openSink("contexts.csv", ExportDelta.NODE);
+        author_association_entries = openSink("author_association_relation.csv", ExportDelta.RELATIONSHIP);
+        coauthor_entries = openSink("coauthor_relation.csv", ExportDelta.RELATIONSHIP);
+        pub_author_citations_entries = openSink("pub_author_citations.csv", ExportDelta.NODE);
+        if (citationIndex != null)
+            pub_in_degree_entries = openSink("pub_in_degrees.csv", ExportDelta.NODE);
+
+        try {
+            if (fullExport)
+                exportAll();
+            else
+                export();
+            if (citationLeaderboard != null) {
+                // a full export counts the citations during its pass over the publications
+                if (!fullExport) {
+                    for (Publication pub : dblp.getPublications())
+                        citationLeaderboard.add(pub.getYear(), PublicationFields.of(pub).getCitations());
+                }
+                citationLeaderboard.write(resultsDirectoryPath, gzipOutput);
+                outputFiles.add(CitationLeaderboard.OUTPUT_FILE_NAME + (gzipOutput ? ".gz" : ""));
+            }
+            CSVSink associations = openSink("associations.csv", ExportDelta.NODE);
+            associations.addAll(association_entries);
+            if (neo4jImportFormat != null) {
+                neo4jImportFormat.writeImportArguments(resultsDirectoryPath, gzipOutput);
+                outputFiles.add(Neo4jImportFormat.ARGS_FILE_NAME);
+            }
+            if (exportDelta != null)
+                outputFiles.addAll(exportDelta.finish());
+        } finally {
+            closeSinks();
+        }
+    }
+
+    // identityColumns: ExportDelta.NODE or ExportDelta.RELATIONSHIP
+    private CSVSink openSink(String fileName, int identityColumns) throws IOException {
+        // a full export visits every record once, its rows are unique already (the relations of a
+        // record are deduplicated when they are written)
+        CSVSink sink = new CSVSink(resultsDirectoryPath + fileName, !fullExport, gzipOutput, rowFormatOf(fileName, identityColumns));
+        sinks.add(sink);
+        outputFiles.add(new File(sink.getFileName()).getName());
+        return sink;
+    }
+
+    private RowFormat rowFormatOf(String fileName, int identityColumns) throws IOException {
+        if (exportDelta != null)
+            return exportDelta.forFile(fileName, identityColumns);
+        if (neo4jImportFormat != null)
+            return neo4jImportFormat.forFile(fileName);
+        return null;
+    }
+
+    private void closeSinks() throws IOException {
+        IOException failure = null;
+        for (CSVSink sink : sinks) {
+            try {
+                sink.close();
+                System.out.println(sink.report());
+            } catch (IOException e) {
+                if (failure == null) failure = e;
+            }
+        }
+        sinks.clear();
+        if (failure != null)
+            throw failure;
+    }
+
+    private void export() {
+
+        if (seedAuthorNames.isEmpty()) {
+            // if we don't add orcid, useless
+            dblp.getPersons().stream().map(Author::new).filter(Author::hasOrcid).limit(initNumAuthors).forEach(authors::offer);
+        } else {
+            for (String name : seedAuthorNames) {
+                Person person = dblp.getPersonByName(name);
+                if (person == null)
+                    throw new IllegalArgumentException("unknown author: " + name);
+                authors.offer(person);
+            }
+        }
+
+        if (numThreads > 1)
+            crawlInParallel();
+        else
+            crawl();
+
+
+        // construct all types of publication csv starting from the util publication list
+        // publications.csv
+        // insertion ordered and filled in key order: the order of the rows and of the related
+        // publications of each context, cut at maxNumPubsPerContext, must not depend on hash codes
+        Set<MyPublication> very_util_pubs = dblp.getPublications().stream().map(MyPublication::new).filter(p -> !p.getCitations().isEmpty()).limit(util_pubs.size()/3).collect(Collectors.toCollection(LinkedHashSet::new));
+        very_util_pubs.addAll(util_pubs.stream().filter(p -> !p.getCitations().isEmpty()).sorted(Comparator.comparing(MyPublication::getKey)).toList());
+        util_pubs.removeIf(p -> !p.getCitations().isEmpty());
+        List<MyPublication> list_util_pubs = new ArrayList<>(util_pubs);
+        // sorted first, so that the sample only depends on the random seed
+        list_util_pubs.sort(Comparator.comparing(MyPublication::getKey));
+        Collections.shuffle(list_util_pubs, random);
+        very_util_pubs.addAll(list_util_pubs.stream().limit(util_pubs.size() / 2).toList());
+        for (MyPublication publication : very_util_pubs) {
+
+            /*
+            if (publication.getTag().equals("book")) {
+                System.out.println("BOOK: " + publication.getFields().stream().map(field -> field.tag() + ": " + field.value() + " - ").collect(Collectors.joining(",")) + "\n");
+                if (!publication.getCrossRef().equals(""))
+                    System.out.println("book senza padre");
+            }
+
+            if (publication.getFields().stream().anyMatch(Field::hasAttributes))
+                System.out.println("HAS ATTR: " + publication.getFields().stream().map(field -> field.tag() + ": " + field.value() + " - ").collect(Collectors.joining(",")) + "\n");
+
+             */
+
+            addPublicationAndItsRelationEntries(publication, true);
+
+            //add list of authors for each publication
+
+            List<String> authors_citations= new ArrayList<>();
+            authors_citations.add(publication.getKey());
+            authors_citations.add(publication.getTitle());
+            authors_citations.addAll(publication.getNamesString());
+            //STOP1 is my separator from citation and authors
+            authors_citations.add("STOP1");
+
+
+            //pub_author_citations_entries.add(Collections.singletonList("STOP1"));)
+
+            List<String> citations = publication.getCitations().stream().limit(maxNumCitationsPerPub).toList();
+            if (!citations.isEmpty()) {
+                //if (citations.size() > MAX_NUM_CITATIONS_PER_PUB) citations = citations.subList(0, MAX_NUM_CITATIONS_PER_PUB);
+                citations.forEach(cit -> {
+                    // pub_pubs_relation.csv (citations of a publication)
+                    // Adding the following pair: < key of the publication, key of another publication cited in that publication >
+                    citation_entries.add(Arrays.asList(publication.getKey(), cit));
+
+                    // Adding the citation as a publication in the db with related relations
+                    addPublicationAndItsRelationEntries(dblp.getPublication(cit), true);
+                });
+            }
+            //add citation to pub_author_entries after the stop in order to have in only 1 row all the info
+            authors_citations.addAll(citations);
+            pub_author_citations_entries.add(authors_citations);
+
+            // incoming citations, the publications citing this one
+            if (citationIndex != null && maxNumCitersPerPub > 0) {
+                for (String citer : citationIndex.citedBy(publication.getKey(), maxNumCitersPerPub)) {
+                    citation_entries.add(Arrays.asList(citer, publication.getKey()));
+                    addPublicationAndItsRelationEntries(dblp.getPublication(citer), true);
+                }
+            }
+        }
+        // adding possible contexts (book) of the current publication
+        // NO. ASSUMPTION: book no context
+
+
+        // contexts.csv
+        for (Context context : util_contexts.getContexts()){
+
+            context_entries.add(context.generateCSVEntry());
+
+            // context_pubs_relation.csv
+            List<String> pubs_in_proceedings = context.getRelatedPublications().stream().limit(maxNumPubsPerContext).toList();
+            // List<String> pubs_in_proceedings = context.getRelatedPublications();
+            if(!pubs_in_proceedings.isEmpty()){
+                pubs_in_proceedings.forEach(pub -> {
+                    // Adding the following pair: < key of the context, key of the publication presented in that context >
+                    context_pubs_entries.add(context.generateCSVEntry(pub));
+
+                    // Adding the publication presented in that context as a publication in the db with related relations
+                    addPublicationAndItsRelationEntries(dblp.getPublication(pub), false);
+                });
+            }
+        }
+
+        // coauthor_relation.csv, without the coauthors that are in no exported publication
+        for (List<String> entry : crawledCoauthorEntries) {
+            if (writtenAuthorPids.contains(entry.get(0)) && writtenAuthorPids.contains(entry.get(1)))
+                coauthor_entries.add(entry);
+        }
+
+        System.out.println("pub entry size: " + publication_entries.size());
+        System.out.println("num of pubs with citations: " + (int) very_util_pubs.stream().filter(p -> !p.getCitations().isEmpty()).count());
+        System.out.println("author_pubs_rel size: " + author_pub_entries.size());
+        System.out.println(crossrefs.report());
+    }
+
+    /**
+     * Writes every person, publication and venue of the DB in a single pass over each, without
+     * keeping the visited records: the only state is the journal titles already written.
+     */
+    private void exportAll() {
+        // authors.csv, author_association_relation.csv and coauthor_relation.csv
+        long numAuthors = 0;
+        for (Person person : dblp.getPersons()) {
+            Author author = new Author(person);
+            author_entries.add(author.generateCSVEntry());
+            author_association_entries.add(Arrays.asList(author.getPid(), AssociationUtils.getAssociationOf(author.getPid()).getId()));
+            // every pair is written by its author with the smaller PID
+            CoauthorCounter coauthorCounter = new CoauthorCounter(author.getPid());
+            for (Publication pub : author.getPublications())
+                coauthorCounter.addPublication(pub);
+            coauthor_entries.addAll(coauthorCounter.generateCSVEntries(true));
+            if (++numAuthors % 500_000 == 0)
+                System.out.println("authors: " + numAuthors);
+        }
+
+        // journal title -> context key, same dedup as util_contexts
+        Map<String, String> journalKeysByTitle = new HashMap<>();
+        long numPublications = 0;
+        for (Publication pub : dblp.getPublications()) {
+            MyPublication publication = new MyPublication(pub);
+
+            // contexts.csv
+            if (publication.getTag().equals("proceedings")) {
+                context_entries.add(new Conference(publication).generateCSVEntry());
+                continue;
+            }
+            if (!publication.hasContextInfo())
+                continue;
+
+            // publications.csv
+            publication_entries.add(publicationEntryOf(publication));
+            addInDegreeEntry(publication);
+
+            // context_pubs_relation.csv
+            if (publication.getTag().equals("article")) {
+                if (publication.getJournal() != null) {
+                    String journalTitle = publication.getJournal().getTitle();
+                    String journalKey = journalKeysByTitle.get(journalTitle);
+                    if (journalKey == null) {
+                        Journal journal = new Journal(publication);
+                        journalKey = journal.getKey();
+                        journalKeysByTitle.put(journalTitle, journalKey);
+                        context_entries.add(journal.generateCSVEntry());
+                    }
+                    context_pubs_entries.add(Arrays.asList(journalKey, publication.getKey()));
+                }
+            } else if (publication.hasCrossRef()) {
+                // only proceedings are contexts, the book of an incollection is not in contexts.csv
+                MyPublication parent = crossrefs.resolve(publication.getCrossRef());
+                if (parent != null && parent.getTag().equals("proceedings"))
+                    context_pubs_entries.add(Arrays.asList(publication.getCrossRef(), publication.getKey()));
+            }
+
+            // author_pubs_relation.csv, once per person even if a record repeats a name or has two of its names
+            Set<String> pids = new HashSet<>();
+            for (PersonName name : publication.getNames()) {
+                String pid = name.getPerson().getPid();
+                if (pids.add(pid))
+                    author_pub_entries.add(Arrays.asList(pid, publication.getKey()));
+            }
+
+            // pub_pubs_relation.csv and pub_author_citations.csv, a record can repeat a <cite>
+            List<String> citations = publication.getCitations();
+            for (String cit : new LinkedHashSet<>(citations))
+                citation_entries.add(Arrays.asList(publication.getKey(), cit));
+            if (citationLeaderboard != null)
+                citationLeaderboard.add(publication.getYear(), citations);
+
+            List<String> authors_citations = new ArrayList<>();
+            authors_citations.add(publication.getKey());
+            authors_citations.add(publication.getTitle());
+            authors_citations.addAll(publication.getNamesString());
+            authors_citations.add("STOP1");
+            authors_citations.addAll(citations);
+            pub_author_citations_entries.add(authors_citations);
+
+            if (++numPublications % 1_000_000 == 0)
+                System.out.println("publications: " + numPublications);
+        }
+
+        System.out.format("full export: %d authors, %d publications, %d journals\n",
+                numAuthors, numPublications, journalKeysByTitle.size());
+    }
+
+    private void crawl() {
+        Author author;
+        while ((author = authors.poll()) != null)
+            merge(expand(author));
+    }
+
+    /**
+     * Level-synchronous BFS: all the authors of the current level are expanded concurrently, then
+     * the expansions are merged one by one in frontier order, so the output is the same as the one
+     * of {@link #crawl()}, whatever the number of threads.
+     */
+    private void crawlInParallel() {
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Author> level;
+            while (!(level = authors.drain()).isEmpty()) {
+                List<Future<ExpandedAuthor>> expansions = new ArrayList<>(level.size());
+                for (Author author : level)
+                    expansions.add(pool.submit(() -> expand(author)));
+                for (Future<ExpandedAuthor> expansion : expansions)
+                    merge(expansion.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("coauthor crawl interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // read-only part of the visit of an author, safe to run concurrently
+    private ExpandedAuthor expand(Author author) {
+        ExpandedAuthor expanded = new ExpandedAuthor(author);
+        for (Publication pub : author.getPublications()) {
+            MyPublication publication = new MyPublication(pub);
+            expanded.publications.add(publication);
+            expanded.coauthorCounter.addPublication(publication);
+            if (coauthorGraph == null)
+                expanded.coauthors.add(author.getCoauthorNamesIn(publication).stream().map(dblp::getPersonByName).toList());
+            else
+                expanded.coauthors.add(coauthorsIn(publication, author.getPrimaryName().name()));
+        }
+        return expanded;
+    }
+
+    /**
+     * The coauthors of {@link Author#getCoauthorNamesIn}, in the same order, resolved through the
+     * persons of the names as the coauthor graph is instead of looking each name up in the DB.
+     */
+    private static List<Person> coauthorsIn(Publication publication, String authorName) {
+        List<Person> coauthors = new ArrayList<>();
+        for (PersonName name : publication.getNames()) {
+            if (!name.name().equals(authorName))
+                coauthors.add(name.getPerson());
+        }
+        return coauthors;
+    }
+
+    private void merge(ExpandedAuthor expanded) {
+        Author author = expanded.author;
+
+        if (!expanded.publications.isEmpty()) {
+
+            // author.csv
+            author_entries.add(author.generateCSVEntry());
+            writtenAuthorPids.add(author.getPid());
+
+            // author_association_relation.csv
+            author_association_entries.add(Arrays.asList(author.getPid(), AssociationUtils.getRandomAssociation(random).getId()));
+
+            // coauthor_relation.csv, a pair of visited authors gives the same row twice, the sink dedups it
+            crawledCoauthorEntries.addAll(expanded.coauthorCounter.generateCSVEntries(false));
+
+            // visiting coauthors
+            for (List<Person> coauthors : expanded.coauthors) {
+                if (stopAddingAuthors)
+                    break;
+                for (Person coauthor : coauthors) {
+                    if (authors.numVisited() > maxNumVisitingAuthors) stopAddingAuthors = true;
+
+                    authors.offer(coauthor);
+                }
+            }
+
+            // filtering publications by type (context or publication)
+            for (MyPublication publication : expanded.publications)
+                distributePublication(publication, true);
+        }
+    }
+
+    private static final class ExpandedAuthor {
+        private final Author author;
+        private final List<MyPublication> publications = new ArrayList<>();
+        // coauthors of each publication
+        private final List<List<Person>> coauthors = new ArrayList<>();
+        private final CoauthorCounter coauthorCounter;
+
+        private ExpandedAuthor(Author author) {
+            this.author = author;
+            this.coauthorCounter = new CoauthorCounter(author.getPid());
+        }
+    }
+
+    private void distributePublication(MyPublication publication, boolean addToUtilPubs) {
+        // TODO: we are losing relation author -> context
+        if(publication.getTag().equals("proceedings")) {
+            String contextTitle = publication.getTitle();
+            if (!util_contexts.containsTitle(contextTitle)) {
+                util_contexts.add(crossrefs.conferenceOf(publication));
+            }
+        }
+        else if (publication.getTag().equals("article")) {
+            if (publication.getJournal() != null) {
+                String contextName = publication.getJournal().getTitle();
+                Context journal = util_contexts.getByTitle(contextName);
+                if (journal == null) {
+                    util_contexts.add(new Journal(publication));
+                    if (addToUtilPubs) util_pubs.add(publication);
+                } else {
+                    journal.insertNewArticle(publication.getKey());
+                }
+            }
+        }
+        else {
+            if (addToUtilPubs) util_pubs.add(publication);
+        }
+    }
+
+    private void addPublicationAndItsRelationEntries(Publication publicationToAdd, boolean addAlsoItsPossibleContext) {
+        MyPublication publication = new MyPublication(publicationToAdd);
+
+        // add publicationToAdd's info ( if we have info on its context )
+        if (publication.hasContextInfo()) {
+            // publications.csv
+            if (publication_entries.add(publicationEntryOf(publication)))
+                addInDegreeEntry(publication);
+
+            // add all the authors of publicationToAdd (both in authors.csv and author_pubs_relation.csv)
+            publication.getNames().forEach(authorName -> {
+                Author author = new Author(authorName.getPerson());
+                author_entries.add(author.generateCSVEntry());
+                writtenAuthorPids.add(author.getPid());
+                // author_pubs_relation.csv
+                // Adding the following pair: < key of the author, key of the publication written by that author >
+                author_pub_entries.add(Arrays.asList(author.getPid(), publication.getKey()));
+            });
+        }
+
+        if (addAlsoItsPossibleContext) {
+            if (publication.hasCrossRef()) {
+                MyPublication parent = crossrefs.resolve(publication.getCrossRef());
+                if (parent != null)
+                    distributePublication(parent, false);
+            } else if (publication.getTag().equals("article")) {
+                distributePublication(publication, false);
+            }
+        }
+    }
+
+    // publications.csv, with the PageRank of the publication as last column if there is one
+    private List<String> publicationEntryOf(MyPublication publication) {
+        List<String> entry = publication.generateCSVEntry();
+        if (citationRank != null)
+            entry.add(String.format(Locale.ROOT, "%.6f", citationRank.scoreOf(publication.getKey())));
+        return entry;
+    }
+
+    // pub_in_degrees.csv: < key of the publication, year, number of publications of the DB citing it >
+    private void addInDegreeEntry(MyPublication publication) {
+        if (citationIndex != null)
+            pub_in_degree_entries.add(Arrays.asList(publication.getKey(), String.valueOf(publication.getYear()),
+                    String.valueOf(citationIndex.inDegree(publication.getKey()))));
+    }
+}
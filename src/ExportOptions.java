@@ -0,0 +1,347 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Command line options of {@link CSVGenerator}.
+ * <p>
+ * Usage: {@code java CSVGenerator [options] <dblp-xml-file> <dblp-dtd-file>}
+ */
+public class ExportOptions {
+
+    private static final String USAGE = """
+            Usage: java %s [options] <dblp-xml-file> <dblp-dtd-file>
+            The dblp xml file can be gzip or xz compressed (xz needs the xz command), it is decompressed on the fly.
+            Options:
+              --stream           read the dump record by record (StAX) instead of building the main memory DB;
+                                 there is then no DB for --cited-by, --pagerank, --coauthor-graph, --separation or --serve,
+                                 and no random choice for --random-seed
+              --snapshot <file>  stream the records from a binary snapshot of the dump, the snapshot is
+                                 written from the xml first if it doesn't exist yet (implies --stream)
+              --full             export the whole DB instead of a coauthor crawl sample (--stream
+                                 always exports every record)
+              --manifest         record a manifest of the full export (--full or --stream), for a later --delta
+              --delta <file>     only write the rows added or changed since the export of the given manifest,
+                                 and a <name>.delete.csv per file for the rows gone (implies --manifest)
+              --mmap             with --stream, memory-map the xml and scan its bytes instead of parsing it
+                                 with StAX, only the fields of the export are decoded (single thread)
+              --checkpoint <n>   checkpoint the --stream export every <n> records (results/export.checkpoint),
+                                 needs --snapshot or --mmap to resume without reading the xml again
+              --resume           resume the --stream export from its last checkpoint, if any
+              --cited-by <n>     build the reverse citation index: export up to <n> citing publications of
+                                 every sampled publication, and the in-degrees in pub_in_degrees.csv
+              --leaderboard <k>  write the <k> most cited publications of every year (cited by the
+                                 publications of that year) in citation_leaderboard.csv
+              --pagerank         compute the PageRank of the publications over the citations of the DB,
+                                 written as last column of publications.csv
+              --coauthor-graph   build the coauthor graph of the DB and crawl through its persons instead of looking up names
+              --separation <file>  answer the degrees-of-separation queries of <file> (one tab separated pair
+                                 of author PIDs or names per line) in results/separation.csv, no export
+              --serve <port>     load the main memory DB once and serve export jobs on localhost:<port>
+              --tags <t,...>     only read the records of these tags (e.g. article,inproceedings)
+              --years <y1>-<y2>  only read the records of the years y1 to y2 (included, either can be left out)
+              --venue <p,...>    only read the records whose journal or booktitle starts with one of the prefixes
+              --key-prefix <p,...>  only read the records whose key starts with one of the prefixes (e.g. conf/sigmod/)
+                                 (the filters skip the other records while parsing, person records always pass;
+                                 with the main memory DB the xml must not be compressed)
+              --threads <n>      expand the authors of the coauthor crawl on <n> threads (default 1), with
+                                 --stream parse the xml in chunks of 16 MB on <n> threads; up to 2 * <n> chunks,
+                                 at most 256 MB of xml, are parsed ahead, their records take a few times that in memory
+              --random-seed <n>  seed of the random choices, to get the same output on every run
+              --gzip             gzip the CSV files on the fly
+              --neo4j-import     write the files for neo4j-admin database import (integer ids, typed
+                                 headers, labels and relationship types) and its arguments file
+            """;
+
+    private String dblpXmlFilename;
+    private String dblpDtdFilename;
+    private boolean streaming = false;
+    private String snapshotFilename = null;
+    private boolean fullExport = false;
+    private boolean writeManifest = false;
+    private String previousManifest = null;
+    private boolean memoryMapped = false;
+    private long checkpointInterval = 0;
+    private boolean resume = false;
+    private int maxNumCitersPerPub = -1;
+    private int citationLeaderboardSize = 0;
+    private boolean pageRank = false;
+    private boolean coauthorGraph = false;
+    private String separationFilename = null;
+    private int serverPort = -1;
+    private int numThreads = 1;
+    private Long randomSeed = null;
+    private boolean gzipOutput = false;
+    private boolean neo4jImport = false;
+    private final RecordFilter recordFilter = new RecordFilter();
+
+    private ExportOptions() {
+    }
+
+    public static ExportOptions parse(String[] args) {
+        ExportOptions options = new ExportOptions();
+        List<String> positional = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--stream" -> options.streaming = true;
+                case "--snapshot" -> {
+                    options.snapshotFilename = value(args, ++i);
+                    options.streaming = true;
+                }
+                case "--full" -> options.fullExport = true;
+                case "--manifest" -> options.writeManifest = true;
+                case "--delta" -> {
+                    options.previousManifest = value(args, ++i);
+                    options.writeManifest = true;
+                }
+                case "--mmap" -> options.memoryMapped = true;
+                case "--checkpoint" -> options.checkpointInterval = longValue(args, ++i);
+                case "--resume" -> options.resume = true;
+                case "--cited-by" -> options.maxNumCitersPerPub = intValue(args, ++i);
+                case "--leaderboard" -> options.citationLeaderboardSize = intValue(args, ++i);
+                case "--pagerank" -> options.pageRank = true;
+                case "--coauthor-graph" -> options.coauthorGraph = true;
+                case "--separation" -> options.separationFilename = value(args, ++i);
+                case "--serve" -> options.serverPort = intValue(args, ++i);
+                case "--tags" -> options.recordFilter.setTags(listValue(args, ++i));
+                case "--years" -> yearsValue(options.recordFilter, args, ++i);
+                case "--venue" -> options.recordFilter.setVenuePrefixes(listValue(args, ++i));
+                case "--key-prefix" -> options.recordFilter.setKeyPrefixes(listValue(args, ++i));
+                case "--threads" -> options.numThreads = intValue(args, ++i);
+                case "--random-seed" -> options.randomSeed = longValue(args, ++i);
+                case "--gzip" -> options.gzipOutput = true;
+                case "--neo4j-import" -> options.neo4jImport = true;
+                default -> {
+                    if (arg.startsWith("--"))
+                        usage("unknown option " + arg);
+                    positional.add(arg);
+                }
+            }
+        }
+
+        if (positional.size() != 2)
+            usage("expected <dblp-xml-file> and <dblp-dtd-file>, got " + positional.size() + " file arguments");
+        // deltas are only meaningful between complete exports, and neo4j ids are not stable across exports
+        if (options.writeManifest && !(options.fullExport || options.streaming))
+            usage("--manifest and --delta need --full or --stream");
+        if (options.writeManifest && options.neo4jImport)
+            usage("--manifest and --delta can't be used with --neo4j-import");
+        // the state of a manifest or of the neo4j ids is not checkpointed
+        boolean checkpointed = options.checkpointInterval > 0 || options.resume;
+        if (checkpointed && !options.streaming)
+            usage("--checkpoint and --resume need --stream");
+        if (checkpointed && (options.writeManifest || options.neo4jImport))
+            usage("--checkpoint and --resume can't be used with --manifest, --delta or --neo4j-import");
+        // only the snapshot and the mapped reader seek to the checkpoint, the others would parse the records before it again
+        if (checkpointed && !(options.hasSnapshot() || options.memoryMapped))
+            usage("--checkpoint and --resume need --snapshot or --mmap");
+        // the mapped reader is a single scanner, the chunked parser is the StAX one
+        if (options.memoryMapped && !options.streaming)
+            usage("--mmap needs --stream");
+        if (options.memoryMapped && options.numThreads > 1)
+            usage("--mmap reads on a single thread, it can't be used with --threads");
+        // the streaming export writes every record as it is read: it has no DB to index, crawl or serve
+        if (options.streaming) {
+            if (options.hasCitationIndex())
+                usage("--cited-by needs the main memory DB, it can't be used with --stream");
+            if (options.pageRank)
+                usage("--pagerank needs the main memory DB, it can't be used with --stream");
+            if (options.coauthorGraph)
+                usage("--coauthor-graph needs the main memory DB, it can't be used with --stream");
+            if (options.randomSeed != null)
+                usage("--stream exports every record, there is no random choice for --random-seed");
+            if (options.hasSeparationQueries())
+                usage("--separation needs the main memory DB, it can't be used with --stream");
+            if (options.isServing())
+                usage("--serve needs the main memory DB, it can't be used with --stream");
+        }
+        if (options.citationLeaderboardSize < 0)
+            usage("--leaderboard needs a size of 0 or more");
+        // the leaderboard counters are not checkpointed either
+        if (options.citationLeaderboardSize > 0 && options.resume)
+            usage("--leaderboard can't be used with --resume");
+        options.dblpXmlFilename = positional.get(0);
+        options.dblpDtdFilename = positional.get(1);
+        return options;
+    }
+
+    private static String value(String[] args, int i) {
+        if (i >= args.length)
+            usage("missing value of " + args[i - 1]);
+        return args[i];
+    }
+
+    private static int intValue(String[] args, int i) {
+        try {
+            return Integer.parseInt(value(args, i));
+        } catch (NumberFormatException e) {
+            usage("not an integer value of " + args[i - 1] + ": " + args[i]);
+            return -1;
+        }
+    }
+
+    private static long longValue(String[] args, int i) {
+        try {
+            return Long.parseLong(value(args, i));
+        } catch (NumberFormatException e) {
+            usage("not an integer value of " + args[i - 1] + ": " + args[i]);
+            return -1;
+        }
+    }
+
+    private static List<String> listValue(String[] args, int i) {
+        List<String> values = Arrays.stream(value(args, i).split(",")).filter(v -> !v.isEmpty()).toList();
+        if (values.isEmpty())
+            usage("empty list value of " + args[i - 1]);
+        return values;
+    }
+
+    // <from>-<to>, <from>-, -<to> or a single year
+    private static void yearsValue(RecordFilter filter, String[] args, int i) {
+        String years = value(args, i);
+        int dash = years.indexOf('-');
+        try {
+            if (dash < 0) {
+                int year = Integer.parseInt(years);
+                filter.setYears(year, year);
+            } else {
+                String from = years.substring(0, dash);
+                String to = years.substring(dash + 1);
+                int minYear = from.isEmpty() ? 0 : Integer.parseInt(from);
+                int maxYear = to.isEmpty() ? Integer.MAX_VALUE : Integer.parseInt(to);
+                if (minYear > maxYear || (from.isEmpty() && to.isEmpty()))
+                    usage("invalid year range of --years: " + years);
+                filter.setYears(minYear, maxYear);
+            }
+        } catch (NumberFormatException e) {
+            usage("invalid year range of --years: " + years);
+        }
+    }
+
+    /**
+     * Prints why the command line is rejected and the usage, then exits with status 2, so that a
+     * script tells a rejected command line from a run.
+     */
+    private static void usage(String reason) {
+        System.err.println("error: " + reason);
+        System.err.format(USAGE, CSVGenerator.class.getName());
+        System.exit(2);
+    }
+
+    public String getDblpXmlFilename() {
+        return dblpXmlFilename;
+    }
+
+    public String getDblpDtdFilename() {
+        return dblpDtdFilename;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public String getSnapshotFilename() {
+        return snapshotFilename;
+    }
+
+    public boolean hasSnapshot() {
+        return snapshotFilename != null;
+    }
+
+    public boolean isFullExport() {
+        return fullExport;
+    }
+
+    public boolean isWriteManifest() {
+        return writeManifest;
+    }
+
+    public String getPreviousManifest() {
+        return previousManifest;
+    }
+
+    public boolean hasPreviousManifest() {
+        return previousManifest != null;
+    }
+
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    public long getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    public boolean isResume() {
+        return resume;
+    }
+
+    public boolean hasCitationIndex() {
+        return maxNumCitersPerPub >= 0;
+    }
+
+    public int getMaxNumCitersPerPub() {
+        return maxNumCitersPerPub;
+    }
+
+    public boolean hasCitationLeaderboard() {
+        return citationLeaderboardSize > 0;
+    }
+
+    public int getCitationLeaderboardSize() {
+        return citationLeaderboardSize;
+    }
+
+    public boolean hasPageRank() {
+        return pageRank;
+    }
+
+    public boolean hasCoauthorGraph() {
+        return coauthorGraph;
+    }
+
+    public String getSeparationFilename() {
+        return separationFilename;
+    }
+
+    public boolean hasSeparationQueries() {
+        return separationFilename != null;
+    }
+
+    public boolean isServing() {
+        return serverPort >= 0;
+    }
+
+    public int getServerPort() {
+        return serverPort;
+    }
+
+    /**
+     * @return The records to read, an empty filter if every record is read.
+     */
+    public RecordFilter getRecordFilter() {
+        return recordFilter;
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public boolean hasRandomSeed() {
+        return randomSeed != null;
+    }
+
+    public long getRandomSeed() {
+        return randomSeed;
+    }
+
+    public boolean isGzipOutput() {
+        return gzipOutput;
+    }
+
+    public boolean isNeo4jImport() {
+        return neo4jImport;
+    }
+}
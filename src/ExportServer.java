@@ -0,0 +1,347 @@
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.dblp.mmdb.RecordDbInterface;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Long-running export daemon: the dblp main memory DB is loaded once and export jobs are accepted
+ * over a small HTTP API, bound to the loopback interface only.
+ * <ul>
+ * <li>{@code POST /jobs} with a JSON {@link JobRequest} body: queues a new {@link ExportJob}, answers
+ * {@code 202} with the job status.
+ * <li>{@code GET /jobs/<id>}: status of the job (state, output directory, error, files).
+ * <li>{@code GET /jobs/<id>/<file>}: streams back one of the CSV files of a finished job.
+ * <li>{@code GET /separation?from=<author>&to=<author>}: degrees of separation between two authors
+ * (PIDs or names) and the intermediate authors, from the coauthor graph (see
+ * {@link SeparationFinder}).
+ * </ul>
+ * Jobs run concurrently on a fixed pool, they share the read-only {@link RecordDbInterface}. A job
+ * only writes under {@code results/jobs/}: its output directory and the manifest of a previous job
+ * are paths relative to it, and two jobs in progress can't share an output directory.
+ */
+public class ExportServer {
+
+    private static final String DEFAULT_JOBS_DIRECTORY_PATH = "results/jobs/";
+
+    private final RecordDbInterface dblp;
+    private final Set<List<String>> association_entries;
+    private final HttpServer server;
+    private final ExecutorService jobExecutor;
+
+    private final Map<String, JobStatus> jobs = new ConcurrentHashMap<>();
+    private final AtomicLong nextJobId = new AtomicLong(1);
+    private final Path jobsDirectory = Path.of(DEFAULT_JOBS_DIRECTORY_PATH).toAbsolutePath().normalize();
+    // output directories of the queued and running jobs
+    private final Set<Path> busyDirectories = ConcurrentHashMap.newKeySet();
+    private final Gson gson = new Gson();
+    // built by the first job that needs it, then shared
+    private CitationIndex citationIndex = null;
+    private CitationRank citationRank = null;
+    private CoauthorGraph coauthorGraph = null;
+    // the visit arrays of a finder are as large as the graph, one per HTTP thread
+    private final ThreadLocal<SeparationFinder> separationFinder = ThreadLocal.withInitial(() -> new SeparationFinder(coauthorGraph()));
+
+    public ExportServer(RecordDbInterface dblp, Set<List<String>> association_entries, int port) throws IOException {
+        this.dblp = dblp;
+        this.association_entries = association_entries;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.createContext("/jobs", this::handle);
+        this.server.createContext("/separation", this::handleSeparation);
+        this.server.setExecutor(Executors.newCachedThreadPool());
+        this.jobExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    public void start() {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::stop, "export server shutdown"));
+        server.start();
+        System.out.format("export server listening on http://%s:%d/jobs\n", server.getAddress().getHostString(), server.getAddress().getPort());
+    }
+
+    public void stop() {
+        server.stop(0);
+        jobExecutor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String[] path = exchange.getRequestURI().getPath().replaceAll("^/jobs/?", "").split("/");
+            String method = exchange.getRequestMethod();
+
+            if (method.equals("POST") && path[0].isEmpty()) {
+                submit(exchange);
+            } else if (method.equals("GET") && path.length == 1 && !path[0].isEmpty()) {
+                JobStatus status = jobs.get(path[0]);
+                if (status == null)
+                    sendJson(exchange, 404, new Error("unknown job " + path[0]));
+                else
+                    sendJson(exchange, 200, status);
+            } else if (method.equals("GET") && path.length == 2) {
+                sendFile(exchange, path[0], path[1]);
+            } else {
+                sendJson(exchange, 405, new Error(method + " " + exchange.getRequestURI().getPath() + " not supported"));
+            }
+        }
+    }
+
+    private void handleSeparation(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            String from = query.get("from");
+            String to = query.get("to");
+            if (!exchange.getRequestMethod().equals("GET") || from == null || to == null) {
+                sendJson(exchange, 400, new Error("expected GET /separation?from=<author>&to=<author>"));
+                return;
+            }
+
+            CoauthorGraph graph = coauthorGraph();
+            int source = SeparationQueries.idOf(dblp, graph, from);
+            int target = SeparationQueries.idOf(dblp, graph, to);
+            if (source < 0 || target < 0) {
+                sendJson(exchange, 404, new Error("unknown author " + (source < 0 ? from : to)));
+                return;
+            }
+            int[] path = separationFinder.get().shortestPath(source, target);
+
+            Separation separation = new Separation();
+            separation.from = graph.pidOf(source);
+            separation.to = graph.pidOf(target);
+            separation.degrees = path != null ? path.length - 1 : -1;
+            for (int i = 1; path != null && i < path.length - 1; i++)
+                separation.intermediateAuthors.add(new SeparationAuthor(graph.pidOf(path[i]), graph.personOf(path[i]).getPrimaryName().name()));
+            sendJson(exchange, 200, separation);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null)
+            return query;
+        for (String parameter : rawQuery.split("&")) {
+            int eq = parameter.indexOf('=');
+            if (eq > 0)
+                query.put(URLDecoder.decode(parameter.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(parameter.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private void submit(HttpExchange exchange) throws IOException {
+        JobRequest request;
+        try (Reader body = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            request = gson.fromJson(body, JobRequest.class);
+        } catch (JsonSyntaxException e) {
+            sendJson(exchange, 400, new Error("malformed job: " + e.getMessage()));
+            return;
+        }
+        if (request == null)
+            request = new JobRequest();
+
+        String id = String.valueOf(nextJobId.getAndIncrement());
+        Path outputDirectory = jobPath(request.outputDirectory != null ? request.outputDirectory : id);
+        Path previousManifest = request.previousManifest != null ? jobPath(request.previousManifest) : null;
+        if (outputDirectory == null || outputDirectory.equals(jobsDirectory)
+                || (request.previousManifest != null && previousManifest == null)) {
+            sendJson(exchange, 400, new Error("the output directory and the previous manifest must be relative paths inside "
+                    + DEFAULT_JOBS_DIRECTORY_PATH));
+            return;
+        }
+        if ((request.citationLeaderboard != null && request.citationLeaderboard < 0)
+                || (request.maxNumCitersPerPub != null && request.maxNumCitersPerPub < 0)
+                || (request.numThreads != null && request.numThreads < 1)) {
+            sendJson(exchange, 400, new Error("citationLeaderboard and maxNumCitersPerPub can't be negative, numThreads must be at least 1"));
+            return;
+        }
+
+        ExportJob job = new ExportJob(dblp, association_entries, outputDirectory.toString());
+        if (request.seedAuthors != null) job.setSeedAuthorNames(request.seedAuthors);
+        if (request.initNumAuthors != null) job.setInitNumAuthors(request.initNumAuthors);
+        if (request.maxNumVisitingAuthors != null) job.setMaxNumVisitingAuthors(request.maxNumVisitingAuthors);
+        if (request.maxNumCitationsPerPub != null) job.setMaxNumCitationsPerPub(request.maxNumCitationsPerPub);
+        if (request.maxNumPubsPerContext != null) job.setMaxNumPubsPerContext(request.maxNumPubsPerContext);
+        Integer maxNumCitersPerPub = request.maxNumCitersPerPub;
+        boolean useCoauthorGraph = Boolean.TRUE.equals(request.coauthorGraph);
+        boolean usePageRank = Boolean.TRUE.equals(request.pageRank);
+        if (request.citationLeaderboard != null) job.setCitationLeaderboardSize(request.citationLeaderboard);
+        if (request.numThreads != null) job.setNumThreads(request.numThreads);
+        if (request.randomSeed != null) job.setRandomSeed(request.randomSeed);
+        if (request.gzip != null) job.setGzipOutput(request.gzip);
+        if (request.full != null) job.setFullExport(request.full);
+        if (request.manifest != null) job.setWriteManifest(request.manifest);
+        if (previousManifest != null) job.setPreviousManifest(previousManifest.toString());
+        if (request.neo4jImport != null) job.setNeo4jImportFormat(request.neo4jImport);
+        try {
+            job.validate();
+        } catch (IllegalArgumentException e) {
+            sendJson(exchange, 400, new Error(e.getMessage()));
+            return;
+        }
+        if (!busyDirectories.add(outputDirectory)) {
+            sendJson(exchange, 409, new Error("another job is writing to " + outputDirectory));
+            return;
+        }
+
+        JobStatus status = new JobStatus(id, job.getResultsDirectoryPath());
+        jobs.put(id, status);
+        jobExecutor.submit(() -> {
+            status.state = JobState.RUNNING;
+            try {
+                // the index is built on the job thread, the first job needing it pays for it
+                if (maxNumCitersPerPub != null) {
+                    job.setCitationIndex(citationIndex());
+                    job.setMaxNumCitersPerPub(maxNumCitersPerPub);
+                }
+                if (usePageRank)
+                    job.setCitationRank(citationRank());
+                if (useCoauthorGraph)
+                    job.setCoauthorGraph(coauthorGraph());
+                job.run();
+                status.files = new ArrayList<>(job.getOutputFiles());
+                status.state = JobState.DONE;
+            } catch (Exception e) {
+                status.error = e.toString();
+                status.state = JobState.FAILED;
+            } finally {
+                busyDirectories.remove(outputDirectory);
+            }
+        });
+
+        sendJson(exchange, 202, status);
+    }
+
+    /**
+     * @return The path resolved in the jobs directory, {@code null} if it is not inside it (absolute
+     * path, {@code ..}) or not a path.
+     */
+    private Path jobPath(String path) {
+        try {
+            Path resolved = jobsDirectory.resolve(path).normalize();
+            return resolved.startsWith(jobsDirectory) ? resolved : null;
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    private synchronized CitationIndex citationIndex() {
+        if (citationIndex == null)
+            citationIndex = CitationIndex.build(dblp.getPublications());
+        return citationIndex;
+    }
+
+    private synchronized CitationRank citationRank() {
+        if (citationRank == null)
+            citationRank = CitationRank.compute(citationIndex(), Runtime.getRuntime().availableProcessors());
+        return citationRank;
+    }
+
+    private synchronized CoauthorGraph coauthorGraph() {
+        if (coauthorGraph == null)
+            coauthorGraph = CoauthorGraph.build(dblp.getPersons(), dblp.getPublications());
+        return coauthorGraph;
+    }
+
+    private void sendFile(HttpExchange exchange, String id, String fileName) throws IOException {
+        JobStatus status = jobs.get(id);
+        if (status == null || status.state != JobState.DONE || !status.files.contains(fileName)) {
+            sendJson(exchange, 404, new Error("no file " + fileName + " for job " + id));
+            return;
+        }
+        File file = new File(status.outputDirectory, fileName);
+        exchange.getResponseHeaders().set("Content-Type", fileName.endsWith(".gz") ? "application/gzip"
+                : fileName.endsWith(".csv") ? "text/csv; charset=utf-8" : "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(200, file.length());
+        try (OutputStream out = exchange.getResponseBody()) {
+            Files.copy(file.toPath(), out);
+        }
+    }
+
+    private void sendJson(HttpExchange exchange, int code, Object body) throws IOException {
+        byte[] bytes = gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Body of {@code POST /jobs}, every field is optional.
+     */
+    private static class JobRequest {
+        private List<String> seedAuthors;
+        private Integer initNumAuthors;
+        private Integer maxNumVisitingAuthors;
+        private Integer maxNumCitationsPerPub;
+        private Integer maxNumPubsPerContext;
+        private Integer maxNumCitersPerPub;
+        private Boolean coauthorGraph;
+        private Boolean pageRank;
+        private Integer citationLeaderboard;
+        private Integer numThreads;
+        private Long randomSeed;
+        private Boolean gzip;
+        private Boolean full;
+        private Boolean manifest;
+        private String previousManifest;
+        private Boolean neo4jImport;
+        private String outputDirectory;
+    }
+
+    private static class Separation {
+        private String from;
+        private String to;
+        private int degrees;
+        private final List<SeparationAuthor> intermediateAuthors = new ArrayList<>();
+    }
+
+    private static class SeparationAuthor {
+        private final String pid;
+        private final String name;
+
+        private SeparationAuthor(String pid, String name) {
+            this.pid = pid;
+            this.name = name;
+        }
+    }
+
+    private enum JobState {QUEUED, RUNNING, DONE, FAILED}
+
+    private static class JobStatus {
+        private final String id;
+        private final String outputDirectory;
+        private volatile JobState state = JobState.QUEUED;
+        private volatile String error;
+        private volatile List<String> files = new ArrayList<>();
+
+        private JobStatus(String id, String outputDirectory) {
+            this.id = id;
+            this.outputDirectory = outputDirectory;
+        }
+    }
+
+    private static class Error {
+        private final String error;
+
+        private Error(String error) {
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+import java.util.Arrays;
+
+/**
+ * Set of primitive {@code long}s (open addressing, linear probing), 8 bytes per slot instead of a
+ * boxed {@link Long} plus a hash map node per element.
+ */
+public class LongHashSet {
+
+    // 0 marks an empty slot, so the value 0 is stored apart
+    private long[] slots;
+    private boolean containsZero = false;
+    private int size = 0;
+
+    public LongHashSet() {
+        this(1024);
+    }
+
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        this.slots = new long[capacity];
+    }
+
+    /**
+     * @return {@code true} if the value was not in the set yet.
+     */
+    public boolean add(long value) {
+        if (value == 0) {
+            if (containsZero)
+                return false;
+            containsZero = true;
+            size++;
+            return true;
+        }
+        if ((size + 1) * 2 > slots.length)
+            grow();
+        if (!insert(slots, value))
+            return false;
+        size++;
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (value == 0)
+            return containsZero;
+        int mask = slots.length - 1;
+        for (int i = index(value, mask); slots[i] != 0; i = (i + 1) & mask) {
+            if (slots[i] == value)
+                return true;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, 0);
+        containsZero = false;
+        size = 0;
+    }
+
+    /**
+     * @return A copy of the values, in no particular order.
+     */
+    public long[] toArray() {
+        long[] values = new long[size];
+        int n = 0;
+        if (containsZero)
+            values[n++] = 0;
+        for (long slot : slots) {
+            if (slot != 0)
+                values[n++] = slot;
+        }
+        return values;
+    }
+
+    private static boolean insert(long[] slots, long value) {
+        int mask = slots.length - 1;
+        int i = index(value, mask);
+        while (slots[i] != 0) {
+            if (slots[i] == value)
+                return false;
+            i = (i + 1) & mask;
+        }
+        slots[i] = value;
+        return true;
+    }
+
+    private void grow() {
+        long[] grown = new long[slots.length * 2];
+        for (long slot : slots) {
+            if (slot != 0)
+                insert(grown, slot);
+        }
+        slots = grown;
+    }
+
+    private static int index(long value, int mask) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
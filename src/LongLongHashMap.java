@@ -0,0 +1,133 @@
+import java.util.Arrays;
+
+/**
+ * Map from primitive {@code long} to primitive {@code long} (open addressing, linear probing),
+ * 16 bytes per slot instead of two boxed {@link Long}s plus a hash map node per entry.
+ */
+public class LongLongHashMap {
+
+    // 0 marks an empty slot, so the key 0 is stored apart
+    private long[] keys;
+    private long[] values;
+    private boolean containsZero = false;
+    private long zeroValue;
+    private int size = 0;
+
+    public LongLongHashMap() {
+        this(1024);
+    }
+
+    public LongLongHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.values = new long[capacity];
+    }
+
+    public void put(long key, long value) {
+        if (key == 0) {
+            if (!containsZero)
+                size++;
+            containsZero = true;
+            zeroValue = value;
+            return;
+        }
+        if ((size + 1) * 2 > keys.length)
+            grow();
+        if (insert(keys, values, key, value))
+            size++;
+    }
+
+    /**
+     * Adds {@code delta} to the value of the key (0 if the key is not in the map yet).
+     *
+     * @return The new value.
+     */
+    public long addTo(long key, long delta) {
+        long value = getOrDefault(key, 0) + delta;
+        put(key, value);
+        return value;
+    }
+
+    public boolean containsKey(long key) {
+        if (key == 0)
+            return containsZero;
+        return slotOf(key) >= 0;
+    }
+
+    /**
+     * @return The value of the key, or {@code defaultValue} if the key is not in the map.
+     */
+    public long getOrDefault(long key, long defaultValue) {
+        if (key == 0)
+            return containsZero ? zeroValue : defaultValue;
+        int slot = slotOf(key);
+        return slot >= 0 ? values[slot] : defaultValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Visits every entry of the map, in no particular order.
+     */
+    public void forEach(EntryVisitor visitor) {
+        if (containsZero)
+            visitor.visit(0, zeroValue);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0)
+                visitor.visit(keys[i], values[i]);
+        }
+    }
+
+    public interface EntryVisitor {
+        void visit(long key, long value);
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        containsZero = false;
+        size = 0;
+    }
+
+    private int slotOf(long key) {
+        int mask = keys.length - 1;
+        for (int i = index(key, mask); keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key)
+                return i;
+        }
+        return -1;
+    }
+
+    // @return true if the key was not in the map yet
+    private static boolean insert(long[] keys, long[] values, long key, long value) {
+        int mask = keys.length - 1;
+        int i = index(key, mask);
+        while (keys[i] != 0) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        return true;
+    }
+
+    private void grow() {
+        long[] grownKeys = new long[keys.length * 2];
+        long[] grownValues = new long[keys.length * 2];
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0)
+                insert(grownKeys, grownValues, keys[i], values[i]);
+        }
+        keys = grownKeys;
+        values = grownValues;
+    }
+
+    private static int index(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
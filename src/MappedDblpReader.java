@@ -0,0 +1,569 @@
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Memory-mapped reader of the dblp xml dump scanning its bytes directly, without a StAX parser
+ * and without decoding the whole document into chars. Tag names are recognized on the bytes and
+ * interned, and only the {@code key} and {@code mdate} attributes and the fields of
+ * {@code fieldTags} are decoded into strings; the other fields are skipped over.
+ * <p>
+ * The reader only handles what the dump contains: records with attributes, fields with text,
+ * nested markup ({@code <i>}, {@code <sub>} ...) flattened into the field value, character
+ * references and the entities of the DTD ({@code <!ENTITY name "value">}), comments. Records are
+ * the same as the ones of a {@link DblpStreamReader}. As {@link DblpSnapshotReader}, the file is
+ * mapped in windows of at most {@link #WINDOW_SIZE} bytes, remapped at a record start when less
+ * than {@link #MAX_RECORD_SIZE} bytes are left.
+ */
+public class MappedDblpReader implements RecordSource {
+
+    private static final long WINDOW_SIZE = 1L << 30;
+    private static final long MAX_RECORD_SIZE = 16L << 20;
+
+    private static final Pattern ENTITY_DECLARATION = Pattern.compile("<!ENTITY\\s+(\\w+)\\s+\"([^\"]*)\"\\s*>");
+    private static final Pattern ENCODING = Pattern.compile("encoding\\s*=\\s*[\"']([A-Za-z0-9._-]+)[\"']");
+
+    private final String dblpXmlFilename;
+    private final FileChannel channel;
+    private final long fileSize;
+    private final Charset charset;
+    private final Map<String, String> entities = new HashMap<>();
+    // null to decode every field
+    private final Set<String> fieldTags;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    // position in the window
+    private int pos;
+    private boolean ended = false;
+    private RecordFilter filter = null;
+    // file offsets of the last record read, from its start tag to the end of its end tag
+    private long recordStart;
+    private long recordEnd;
+    // end of the start tag of the root
+    private long prologueEnd;
+
+    // interned tag names, looked up by their bytes
+    private final List<byte[]> tagBytes = new ArrayList<>();
+    private final List<String> tagNames = new ArrayList<>();
+    private final List<Boolean> decodedTags = new ArrayList<>();
+
+    private final StringBuilder text = new StringBuilder();
+    private byte[] scratch = new byte[1024];
+
+    public MappedDblpReader(String dblpXmlFilename, String dblpDtdFilename) throws IOException, XMLStreamException {
+        this(dblpXmlFilename, dblpDtdFilename, null);
+    }
+
+    /**
+     * @param fieldTags The fields to decode, the others are left out of the records; {@code null}
+     *                  for all of them.
+     */
+    public MappedDblpReader(String dblpXmlFilename, String dblpDtdFilename, Set<String> fieldTags) throws IOException, XMLStreamException {
+        this.dblpXmlFilename = dblpXmlFilename;
+        this.fieldTags = fieldTags;
+        entities.put("amp", "&");
+        entities.put("lt", "<");
+        entities.put("gt", ">");
+        entities.put("quot", "\"");
+        entities.put("apos", "'");
+        readEntities(Files.readString(Path.of(dblpDtdFilename), StandardCharsets.ISO_8859_1));
+
+        this.channel = FileChannel.open(Path.of(dblpXmlFilename), StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        try {
+            map(0);
+            this.charset = declaredCharset();
+            skipToRoot();
+            this.prologueEnd = windowStart + pos;
+        } catch (IOException | XMLStreamException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Only hands out the records accepted by the filter, the records rejected on their tag or key
+     * are skipped without decoding anything but their key. The fields the filter tests are
+     * decoded even if they are not in {@code fieldTags}.
+     */
+    public void setFilter(RecordFilter filter) {
+        this.filter = filter != null && !filter.isEmpty() ? filter : null;
+        for (int i = 0; i < tagNames.size(); i++)
+            decodedTags.set(i, isDecoded(tagNames.get(i)));
+    }
+
+    private boolean isDecoded(String tag) {
+        return fieldTags == null || fieldTags.contains(tag)
+                || (filter != null && RecordFilter.FIELD_TAGS.contains(tag));
+    }
+
+    /**
+     * Copies the accepted records, as they are in the dump, into a document of their own with the
+     * prologue of the dump, e.g. for a parser without a filter of its own.
+     *
+     * @return The number of records copied.
+     */
+    public long writeAccepted(OutputStream out) throws IOException, XMLStreamException {
+        WritableByteChannel target = Channels.newChannel(out);
+        transfer(0, prologueEnd, target);
+        long numRecords = 0;
+        while (skip(1) == 1) {
+            out.write('\n');
+            transfer(recordStart, recordEnd, target);
+            numRecords++;
+        }
+        out.write("\n</dblp>\n".getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        return numRecords;
+    }
+
+    private void transfer(long from, long to, WritableByteChannel target) throws IOException {
+        while (from < to)
+            from += channel.transferTo(from, to - from, target);
+    }
+
+    @Override
+    public DblpRecord next() throws IOException, XMLStreamException {
+        try {
+            return readRecord(true);
+        } catch (IndexOutOfBoundsException e) {
+            throw error("unexpected end of the document");
+        }
+    }
+
+    // a byte offset in the dump: the end of the last record read
+    @Override
+    public long position() {
+        return windowStart + pos;
+    }
+
+    @Override
+    public void seek(long position) throws IOException {
+        if (position < prologueEnd || position > fileSize)
+            throw new IOException("no record at byte " + position + " of " + dblpXmlFilename);
+        map(position);
+        ended = false;
+    }
+
+    // nothing of the skipped records is decoded
+    @Override
+    public long skip(long numRecords) throws IOException, XMLStreamException {
+        long skipped = 0;
+        try {
+            while (skipped < numRecords && readRecord(false) != null)
+                skipped++;
+        } catch (IndexOutOfBoundsException e) {
+            throw error("unexpected end of the document");
+        }
+        return skipped;
+    }
+
+    /**
+     * @return The next record accepted by the filter, without fields or attributes if
+     * {@code decode} is false and the filter doesn't need them, {@code null} after the last record.
+     */
+    private DblpRecord readRecord(boolean decode) throws IOException, XMLStreamException {
+        while (!ended) {
+            // between the records: whitespace, comments and the end of the root
+            skipText();
+            remapIfNeeded();
+            if (startsWith("<!--")) {
+                skipComment();
+                continue;
+            }
+            if (startsWith("</")) {
+                ended = true;
+                return null;
+            }
+
+            recordStart = windowStart + pos;
+            pos++;
+            String tag = tagNames.get(readTagName());
+            String key = null;
+            String mdate = null;
+            // attributes
+            while (true) {
+                skipWhitespace();
+                byte b = byteAt(pos);
+                if (b == '>' || b == '/')
+                    break;
+                int name = pos;
+                while (byteAt(pos) != '=' && !isWhitespace(byteAt(pos)))
+                    pos++;
+                boolean isKey = matches(name, pos, "key");
+                boolean isMdate = matches(name, pos, "mdate");
+                skipWhitespace();
+                expect('=');
+                skipWhitespace();
+                byte quote = byteAt(pos++);
+                if (quote != '"' && quote != '\'')
+                    throw error("attribute value without quotes");
+                int start = pos;
+                while (byteAt(pos) != quote)
+                    pos++;
+                if ((isKey && (decode || filter != null)) || (isMdate && decode)) {
+                    String value = decode(start, pos);
+                    if (isKey)
+                        key = value;
+                    else
+                        mdate = value;
+                }
+                pos++;
+            }
+
+            // a rejected record is only scanned to its end
+            boolean accepted = filter == null || filter.acceptsHeader(tag, key);
+            boolean decodeFields = accepted && (decode || (filter != null && filter.needsFields()));
+            DblpRecord record = new DblpRecord(tag, key, mdate);
+            if (byteAt(pos) == '/') {
+                pos++;
+                expect('>');
+            } else {
+                pos++;
+                readFields(decodeFields ? record : null);
+            }
+            recordEnd = windowStart + pos;
+            if (accepted && (filter == null || !filter.needsFields() || filter.accepts(record)))
+                return record;
+        }
+        return null;
+    }
+
+    // fields of a record up to its end tag, only decoded if there is a record to add them to
+    private void readFields(DblpRecord record) throws XMLStreamException {
+        while (true) {
+            skipText();
+            if (startsWith("<!--")) {
+                skipComment();
+                continue;
+            }
+            if (startsWith("</")) {
+                skipEndTag();
+                return;
+            }
+            pos++;
+            int field = readTagName();
+            boolean empty = skipAttributes();
+            boolean decodeField = record != null && decodedTags.get(field);
+            if (empty) {
+                if (decodeField)
+                    record.addField(tagNames.get(field), "");
+                continue;
+            }
+            if (decodeField)
+                text.setLength(0);
+            readContent(decodeField);
+            if (decodeField)
+                record.addField(tagNames.get(field), text.toString());
+        }
+    }
+
+    // content of a field up to its end tag, nested markup is flattened into the text
+    private void readContent(boolean decode) throws XMLStreamException {
+        int depth = 0;
+        while (true) {
+            int start = pos;
+            byte b;
+            while ((b = byteAt(pos)) != '<' && b != '&' && b != '\r')
+                pos++;
+            if (decode)
+                appendText(start, pos);
+            if (b == '&') {
+                int end = pos + 1;
+                while (byteAt(end) != ';')
+                    end++;
+                if (decode)
+                    text.append(entity(pos + 1, end));
+                pos = end + 1;
+            } else if (b == '\r') {
+                // line ends are normalized to \n
+                pos++;
+                if (byteAt(pos) == '\n')
+                    pos++;
+                if (decode)
+                    text.append('\n');
+            } else if (startsWith("<!--")) {
+                skipComment();
+            } else if (startsWith("<![CDATA[")) {
+                pos += "<![CDATA[".length();
+                int end = pos;
+                while (!(byteAt(end) == ']' && byteAt(end + 1) == ']' && byteAt(end + 2) == '>'))
+                    end++;
+                if (decode)
+                    appendText(pos, end);
+                pos = end + 3;
+            } else if (startsWith("</")) {
+                skipEndTag();
+                if (depth-- == 0)
+                    return;
+            } else {
+                pos++;
+                readTagName();
+                if (!skipAttributes())
+                    depth++;
+            }
+        }
+    }
+
+    private void appendText(int start, int end) {
+        int length = end - start;
+        if (length == 0)
+            return;
+        if (length > scratch.length)
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        window.get(start, scratch, 0, length);
+        if (charset.equals(StandardCharsets.ISO_8859_1)) {
+            for (int i = 0; i < length; i++)
+                text.append((char) (scratch[i] & 0xFF));
+        } else {
+            text.append(new String(scratch, 0, length, charset));
+        }
+    }
+
+    private String decode(int start, int end) throws XMLStreamException {
+        text.setLength(0);
+        for (int i = start; i < end; ) {
+            int run = i;
+            while (i < end && byteAt(i) != '&')
+                i++;
+            appendText(run, i);
+            if (i < end) {
+                int semicolon = i + 1;
+                while (byteAt(semicolon) != ';')
+                    semicolon++;
+                text.append(entity(i + 1, semicolon));
+                i = semicolon + 1;
+            }
+        }
+        return text.toString();
+    }
+
+    // name of an entity reference between & and ;
+    private String entity(int start, int end) throws XMLStreamException {
+        String name = ascii(start, end);
+        if (name.startsWith("#")) {
+            try {
+                int codePoint = name.startsWith("#x") ? Integer.parseInt(name.substring(2), 16) : Integer.parseInt(name.substring(1));
+                return new String(Character.toChars(codePoint));
+            } catch (IllegalArgumentException e) {
+                throw error("invalid character reference &" + name + ";");
+            }
+        }
+        String value = entities.get(name);
+        if (value == null)
+            throw error("undeclared entity &" + name + ";");
+        return value;
+    }
+
+    private int readTagName() {
+        int start = pos;
+        byte b;
+        while ((b = byteAt(pos)) != '>' && b != '/' && !isWhitespace(b))
+            pos++;
+        return intern(start, pos);
+    }
+
+    private int intern(int start, int end) {
+        int length = end - start;
+        for (int i = 0; i < tagBytes.size(); i++) {
+            byte[] bytes = tagBytes.get(i);
+            if (bytes.length == length && matches(start, end, bytes))
+                return i;
+        }
+        byte[] bytes = new byte[length];
+        window.get(start, bytes, 0, length);
+        String name = new String(bytes, StandardCharsets.US_ASCII);
+        tagBytes.add(bytes);
+        tagNames.add(name);
+        decodedTags.add(isDecoded(name));
+        return tagBytes.size() - 1;
+    }
+
+    /**
+     * Skips the attributes of a start tag and its closing {@code >}.
+     *
+     * @return Whether the element is empty ({@code />}).
+     */
+    private boolean skipAttributes() {
+        byte quote = 0;
+        while (true) {
+            byte b = byteAt(pos++);
+            if (quote != 0) {
+                if (b == quote)
+                    quote = 0;
+            } else if (b == '"' || b == '\'') {
+                quote = b;
+            } else if (b == '>') {
+                return byteAt(pos - 2) == '/';
+            }
+        }
+    }
+
+    private void skipEndTag() {
+        while (byteAt(pos++) != '>') {
+        }
+    }
+
+    private void skipComment() {
+        pos += "<!--".length();
+        while (!(byteAt(pos) == '-' && byteAt(pos + 1) == '-' && byteAt(pos + 2) == '>'))
+            pos++;
+        pos += 3;
+    }
+
+    // text between elements (whitespace in the dump) is ignored, as by DblpStreamReader
+    private void skipText() {
+        while (byteAt(pos) != '<')
+            pos++;
+    }
+
+    private void skipWhitespace() {
+        while (isWhitespace(byteAt(pos)))
+            pos++;
+    }
+
+    private void expect(char c) throws XMLStreamException {
+        if (byteAt(pos++) != c)
+            throw error("expected '" + c + "'");
+    }
+
+    private boolean startsWith(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (pos + i >= window.limit() || byteAt(pos + i) != s.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean matches(int start, int end, String s) {
+        if (end - start != s.length())
+            return false;
+        for (int i = 0; i < s.length(); i++) {
+            if (byteAt(start + i) != s.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean matches(int start, int end, byte[] bytes) {
+        for (int i = 0; i < end - start; i++) {
+            if (byteAt(start + i) != bytes[i])
+                return false;
+        }
+        return true;
+    }
+
+    private String ascii(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        window.get(start, bytes, 0, bytes.length);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private byte byteAt(int i) {
+        return window.get(i);
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\t' || b == '\r';
+    }
+
+    private Charset declaredCharset() throws XMLStreamException {
+        if (!startsWith("<?xml"))
+            return StandardCharsets.UTF_8;
+        int end = pos;
+        while (byteAt(end) != '>')
+            end++;
+        Matcher matcher = ENCODING.matcher(ascii(pos, end));
+        try {
+            return matcher.find() ? Charset.forName(matcher.group(1)) : StandardCharsets.UTF_8;
+        } catch (IllegalArgumentException e) {
+            throw error("unsupported encoding " + matcher.group(1));
+        }
+    }
+
+    // skips the prologue (xml declaration, DOCTYPE, comments) and the start tag of the root
+    private void skipToRoot() throws XMLStreamException {
+        while (true) {
+            skipText();
+            if (startsWith("<?")) {
+                while (!(byteAt(pos) == '?' && byteAt(pos + 1) == '>'))
+                    pos++;
+                pos += 2;
+            } else if (startsWith("<!--")) {
+                skipComment();
+            } else if (startsWith("<!DOCTYPE")) {
+                // the dump refers to an external DTD, there is no internal subset to read
+                int bracket = 0;
+                byte b;
+                while ((b = byteAt(pos++)) != '>' || bracket > 0) {
+                    if (b == '[')
+                        bracket++;
+                    else if (b == ']')
+                        bracket--;
+                }
+            } else {
+                pos++;
+                readTagName();
+                skipAttributes();
+                return;
+            }
+        }
+    }
+
+    private void readEntities(String dtd) throws XMLStreamException {
+        Matcher matcher = ENTITY_DECLARATION.matcher(dtd);
+        while (matcher.find()) {
+            String value = matcher.group(2);
+            StringBuilder decoded = new StringBuilder();
+            for (int i = 0; i < value.length(); i++) {
+                int semicolon = value.indexOf(';', i);
+                if (value.charAt(i) == '&' && value.startsWith("&#", i) && semicolon > 0) {
+                    String reference = value.substring(i + 2, semicolon);
+                    try {
+                        decoded.appendCodePoint(reference.startsWith("x") ? Integer.parseInt(reference.substring(1), 16) : Integer.parseInt(reference));
+                    } catch (IllegalArgumentException e) {
+                        throw new XMLStreamException("invalid character reference in the DTD: " + value);
+                    }
+                    i = semicolon;
+                } else {
+                    decoded.append(value.charAt(i));
+                }
+            }
+            entities.putIfAbsent(matcher.group(1), decoded.toString());
+        }
+    }
+
+    private void remapIfNeeded() throws IOException {
+        long windowEnd = windowStart + window.limit();
+        if (windowEnd < fileSize && windowEnd - (windowStart + pos) < MAX_RECORD_SIZE)
+            map(windowStart + pos);
+    }
+
+    private void map(long start) throws IOException {
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, fileSize - start));
+        windowStart = start;
+        pos = 0;
+    }
+
+    private XMLStreamException error(String message) {
+        return new XMLStreamException(message + " in " + dblpXmlFilename + " at byte " + (windowStart + pos));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -8,97 +8,65 @@ import java.util.stream.Stream;
 public class MyPublication extends Publication {
 
     private final Publication publication;
+    private PublicationFields fields = null;
 
     public MyPublication(Publication publication) {
         this.publication = publication;
     }
 
-    public List<String> generateCSVEntry() {
-        List<String> entry_publication = new ArrayList<>();
-        entry_publication.add(this.getKey());
-        entry_publication.add(this.getTag());
-        entry_publication.add(this.getTitle());
-        entry_publication.add(this.getDOI());
-        entry_publication.add(String.valueOf(this.getYear()));
-        entry_publication.add(this.getVolume());
-        entry_publication.add(this.getPages());
-        entry_publication.add(this.getPublisher());
-        entry_publication.add(this.getURL());
-        entry_publication.add(this.getISBN());
-        entry_publication.add(this.getSchool());
-
+    /**
+     * The fields used by the export, decoded once on first use.
+     */
+    public PublicationFields getPublicationFields() {
+        if (fields == null)
+            fields = PublicationFields.of(publication);
+        return fields;
+    }
 
+    public List<String> generateCSVEntry() {
         // TODO how to manage those differences? all in one csv?
         // TODO Editor field??
-
-
-        return entry_publication;
+        return getPublicationFields().generateCSVEntry();
     }
 
     public String getTitle() {
-        Field title = this.getFields("title").stream().findFirst().orElse(null);
-        if (title == null)
-            return "";
-        return title.value();
+        return getPublicationFields().getTitle();
     }
 
     public String getPages() {
-        Field pages = this.getFields("pages").stream().findFirst().orElse(null);
-        if (pages == null)
-            return "";
-        return pages.value();
+        return getPublicationFields().getPages();
     }
 
     // TODO meaning?
     public String getTypeOfISBN() {
-        Field DOI = this.getFields("ee").stream().findFirst().orElse(null); // DOI not always present... we should distinguish each type of pubs (some has ISBN)
-        Field ISBN = this.getFields("isbn").stream().findFirst().orElse(null);
-        if ( //publication.getIdTypes().contains(PublicationIDType.DOI) &&
-                DOI != null)
-            return DOI.value();
-        if (//publication.getIdTypes().contains(PublicationIDType.ISBN) &&
-                ISBN != null)
-            return ISBN.value();
-        return "";
+        // DOI not always present... we should distinguish each type of pubs (some has ISBN)
+        if (!getPublicationFields().getEe().isEmpty())
+            return getPublicationFields().getEe();
+        return getPublicationFields().getISBN();
     }
 
     public String getISBN() {
-        Field ISBN = this.getFields("isbn").stream().findFirst().orElse(null);
-        if (ISBN != null)
-            return ISBN.value();
-        return "";
+        return getPublicationFields().getISBN();
     }
 
     public String getDOI() {
-        Field DOI = this.getFields("ee").stream().findFirst().orElse(null);
-        if (DOI != null && PublicationIDType.DOI.matchesUrl(DOI.value()))
-            return PublicationIDType.DOI.getID(DOI.value());
-        // return fake (but unique) id
-        return String.valueOf(Math.abs(this.getTitle().hashCode()));
+        return getPublicationFields().getDOI();
     }
 
     public String getURL() {
-        Field URL = this.getFields("url").stream().findFirst().orElse(null);
-        if (URL == null)
-            return "";
-        return URL.value();
+        return getPublicationFields().getURL();
     }
 
     public String getCrossRef(){
-        Field crossref = this.getFields("crossref").stream().findFirst().orElse(null);
-        if (crossref == null)
-            return "";
-        return crossref.value();
+        return getPublicationFields().getCrossRef();
     }
 
     public boolean hasCrossRef() {
-        return !this.getCrossRef().equals("");
+        return getPublicationFields().hasCrossRef();
     }
 
     public List<String> getCitations(){
-        if(!this.getFields("cite").isEmpty())
-            return this.getFields("cite").stream().map(Field::value).filter(c->!c.equals("...")).collect(Collectors.toList());
-        return new ArrayList<>();
+        return getPublicationFields().getCitations();
     }
 
     public List<String> getPublicationsIn(Publication context){
@@ -112,31 +80,19 @@ public class MyPublication extends Publication {
 
 
     public String getSchool() {
-        Field school = this.getFields("school").stream().findFirst().orElse(null);
-        if (school == null)
-            return "";
-        return school.value();
+        return getPublicationFields().getSchool();
     }
 
     public String getPublisher() {
-        Field publisher = this.getFields("publisher").stream().findFirst().orElse(null);
-        if (publisher == null)
-            return "";
-        return publisher.value();
+        return getPublicationFields().getPublisher();
     }
 
     public String getVolume() {
-        Field volume = this.getFields("volume").stream().findFirst().orElse(null);
-        if (volume == null)
-            return "";
-        return volume.value();
+        return getPublicationFields().getVolume();
     }
 
     public String getSeries() {
-        Field series = this.getFields("series").stream().findFirst().orElse(null);
-        if (series == null)
-            return "";
-        return series.value();
+        return getPublicationFields().getSeries();
     }
 
 
@@ -442,8 +398,6 @@ public class MyPublication extends Publication {
     }
 
     public boolean hasContextInfo() {
-        if (this.getTag().equals("inproceedings") || this.getTag().equals("incollection"))
-            return this.hasCrossRef();
-        return true;
+        return getPublicationFields().hasContextInfo();
     }
 }
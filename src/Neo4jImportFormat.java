@@ -0,0 +1,145 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Output format for {@code neo4j-admin database import}: node files get a typed header, a dense
+ * integer {@code :ID} and their {@code :LABEL}s, relationship files become
+ * {@code :START_ID,:END_ID,:TYPE} rows over those integer ids, followed by their typed properties
+ * if any.
+ * <p>
+ * Keys are mapped to ids per node space (authors, publications, contexts, associations), so that
+ * e.g. a proceedings exported both as a context and as a publication gives two distinct nodes.
+ * All spaces share one counter, ids are unique over the whole import
+ * ({@code --id-type=INTEGER}). A relationship can point to a node that is not exported (e.g. a
+ * cited publication outside the sample), hence {@code --skip-bad-relationships} in the generated
+ * command.
+ */
+public class Neo4jImportFormat {
+
+    public static final String ARGS_FILE_NAME = "neo4j-admin-import.args";
+
+    private final StringIntHashMap authorIds = new StringIntHashMap();
+    private final StringIntHashMap publicationIds = new StringIntHashMap();
+    private final StringIntHashMap contextIds = new StringIntHashMap();
+    private final StringIntHashMap associationIds = new StringIntHashMap();
+    private int nextId = 0;
+
+    private final List<String> nodeFiles = new ArrayList<>();
+    private final List<String> relationshipFiles = new ArrayList<>();
+
+    /**
+     * @param fileName Name of a file of the export (e.g. {@code authors.csv}).
+     * @return The format of the file, or {@code null} if the file is not part of the import and is
+     * written as it is.
+     */
+    public synchronized RowFormat forFile(String fileName) {
+        return switch (fileName) {
+            case "authors.csv" -> node(fileName, authorIds, "Author",
+                    "id", "name", "url");
+            case "publications.csv" -> node(fileName, publicationIds, "Publication",
+                    "id", "type", "title", "doi", "year:int", "volume", "pages", "publisher", "url", "isbn", "school", "pageRank:double");
+            case "contexts.csv" -> node(fileName, contextIds, null,
+                    "id", "title", "name", "year:int", "volume", "publisher", "url");
+            case "associations.csv" -> node(fileName, associationIds, "Association",
+                    "id", "name", "country", "address", "website", "funding");
+            case "author_pubs_relation.csv" -> relationship(fileName, authorIds, publicationIds, "PRODUCE");
+            case "pub_pubs_relation.csv" -> relationship(fileName, publicationIds, publicationIds, "REFERENCES");
+            case "context_pubs_relation.csv" -> relationship(fileName, contextIds, publicationIds, "CONTAINS");
+            case "author_association_relation.csv" -> relationship(fileName, authorIds, associationIds, "AFFILIATED");
+            case "coauthor_relation.csv" -> relationship(fileName, authorIds, authorIds, "COAUTHOR",
+                    "count:int", "firstYear:int", "lastYear:int");
+            default -> null;
+        };
+    }
+
+    /**
+     * Writes the arguments of {@code neo4j-admin database import full} for the files created so
+     * far, to be used as {@code neo4j-admin database import full @neo4j-admin-import.args <db>}
+     * from the results directory.
+     */
+    public synchronized void writeImportArguments(String resultsDirectoryPath, boolean gzip) throws IOException {
+        String suffix = gzip ? ".gz" : "";
+        try (PrintWriter pw = new PrintWriter(resultsDirectoryPath + ARGS_FILE_NAME, StandardCharsets.UTF_8)) {
+            pw.println("--id-type=INTEGER");
+            pw.println("--skip-bad-relationships=true");
+            pw.println("--skip-duplicate-nodes=true");
+            // quoted fields keep their line breaks, see CSVEncoder
+            pw.println("--multiline-fields=true");
+            nodeFiles.forEach(f -> pw.println("--nodes=" + f + suffix));
+            relationshipFiles.forEach(f -> pw.println("--relationships=" + f + suffix));
+        }
+    }
+
+    private int idOf(StringIntHashMap space, String key) {
+        int id = space.getOrDefault(key, -1);
+        if (id < 0) {
+            id = nextId++;
+            space.put(key, id);
+        }
+        return id;
+    }
+
+    private RowFormat node(String fileName, StringIntHashMap space, String label, String... properties) {
+        nodeFiles.add(fileName);
+        List<String> header = new ArrayList<>();
+        header.add(":ID");
+        header.addAll(Arrays.asList(properties));
+        header.add(":LABEL");
+
+        return new RowFormat() {
+            @Override
+            public List<String> header() {
+                return header;
+            }
+
+            @Override
+            public List<String> format(List<String> row) {
+                List<String> formatted = new ArrayList<>(header.size());
+                synchronized (Neo4jImportFormat.this) {
+                    formatted.add(String.valueOf(idOf(space, row.get(0))));
+                }
+                // rows can be shorter than the header (e.g. authors without url), pad them
+                for (int i = 0; i < properties.length; i++)
+                    formatted.add(i < row.size() ? row.get(i) : "");
+                formatted.add(label != null ? label : contextLabel(row));
+                return formatted;
+            }
+        };
+    }
+
+    // journal rows only have key and title, see Journal#generateCSVEntry() and Conference#generateCSVEntry()
+    private static String contextLabel(List<String> row) {
+        return row.size() <= 2 ? "Context;Journal" : "Context;Conference";
+    }
+
+    private RowFormat relationship(String fileName, StringIntHashMap startSpace, StringIntHashMap endSpace, String type, String... properties) {
+        relationshipFiles.add(fileName);
+        List<String> header = new ArrayList<>(List.of(":START_ID", ":END_ID", ":TYPE"));
+        header.addAll(Arrays.asList(properties));
+
+        return new RowFormat() {
+            @Override
+            public List<String> header() {
+                return header;
+            }
+
+            @Override
+            public List<String> format(List<String> row) {
+                int start, end;
+                synchronized (Neo4jImportFormat.this) {
+                    start = idOf(startSpace, row.get(0));
+                    end = idOf(endSpace, row.get(1));
+                }
+                List<String> formatted = new ArrayList<>(header.size());
+                formatted.add(String.valueOf(start));
+                formatted.add(String.valueOf(end));
+                formatted.add(type);
+                for (int i = 0; i < properties.length; i++)
+                    formatted.add(2 + i < row.size() ? row.get(2 + i) : "");
+                return formatted;
+            }
+        };
+    }
+}
@@ -0,0 +1,235 @@
+import javax.xml.stream.XMLStreamException;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reader of the dblp xml dump parsing it on several threads. The dump is cut in chunks of about
+ * {@code chunkSize} bytes at top-level record start tags ({@code <article }, {@code <www } ...),
+ * and every chunk is parsed by a {@link DblpStreamReader} as a small document of its own: the
+ * prologue of the dump (xml declaration, DOCTYPE and {@code <dblp>}), the chunk, then
+ * {@code </dblp>}. The DTD is read once and shared by all the chunks, so each one resolves the
+ * same entities.
+ * <p>
+ * The records are handed out in the order of the dump, exactly as a {@link DblpStreamReader}
+ * would. At most {@code 2 * numThreads} chunks, and at most {@link #MAX_BYTES_AHEAD} bytes of xml
+ * (always at least one chunk), are parsed ahead of the reader: the parsed records of a chunk take
+ * a few times its size in memory, so the bound keeps many threads from filling the heap.
+ */
+public class ParallelDblpReader implements RecordSource {
+
+    public static final int DEFAULT_CHUNK_SIZE = 16 << 20;
+    public static final long MAX_BYTES_AHEAD = 256 << 20;
+
+    // tags of the records, children of <dblp>; no field has one of these names
+    private static final List<String> RECORD_TAGS = List.of("article", "inproceedings", "proceedings", "book",
+            "incollection", "phdthesis", "mastersthesis", "www", "person", "data");
+    private static final byte[] END = "</dblp>".getBytes(StandardCharsets.US_ASCII);
+
+    private final String dblpXmlFilename;
+    private final FileChannel channel;
+    private final byte[] dtd;
+    private final byte[] prologue;
+    // chunk i is [boundaries[i], boundaries[i + 1])
+    private final long[] boundaries;
+
+    private final ExecutorService pool;
+    private final int maxChunksAhead;
+    private final Deque<Future<List<DblpRecord>>> parsedChunks = new ArrayDeque<>();
+    private int nextChunk = 0;
+    // xml bytes of the chunks in parsedChunks
+    private long bytesAhead = 0;
+    private Iterator<DblpRecord> records = Collections.emptyIterator();
+    private RecordFilter filter = null;
+
+    public ParallelDblpReader(String dblpXmlFilename, String dblpDtdFilename, int numThreads) throws IOException {
+        this(dblpXmlFilename, dblpDtdFilename, numThreads, DEFAULT_CHUNK_SIZE);
+    }
+
+    public ParallelDblpReader(String dblpXmlFilename, String dblpDtdFilename, int numThreads, int chunkSize) throws IOException {
+        this.dblpXmlFilename = dblpXmlFilename;
+        this.dtd = Files.readAllBytes(Path.of(dblpDtdFilename));
+        this.channel = FileChannel.open(Path.of(dblpXmlFilename), StandardOpenOption.READ);
+        try {
+            long end = endOfRecords();
+            long first = nextRecordStart(0, end);
+            this.prologue = read(0, first);
+            this.boundaries = boundaries(first, end, chunkSize);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        this.pool = Executors.newFixedThreadPool(Math.max(1, numThreads));
+        this.maxChunksAhead = 2 * Math.max(1, numThreads);
+    }
+
+    /**
+     * Only hands out the records accepted by the filter, applied by the chunk parsers (see
+     * {@link DblpStreamReader#setFilter(RecordFilter)}). To be set before the first record.
+     */
+    public void setFilter(RecordFilter filter) {
+        this.filter = filter;
+    }
+
+    @Override
+    public DblpRecord next() throws IOException, XMLStreamException {
+        while (!records.hasNext()) {
+            while (nextChunk < boundaries.length - 1 && (parsedChunks.isEmpty()
+                    || (parsedChunks.size() < maxChunksAhead && bytesAhead + sizeOf(nextChunk) <= MAX_BYTES_AHEAD))) {
+                int chunk = nextChunk++;
+                bytesAhead += sizeOf(chunk);
+                parsedChunks.add(pool.submit(() -> parse(chunk)));
+            }
+            if (parsedChunks.isEmpty())
+                return null;
+            bytesAhead -= sizeOf(nextChunk - parsedChunks.size());
+            records = take(parsedChunks.poll()).iterator();
+        }
+        return records.next();
+    }
+
+    /**
+     * @return The number of chunks the dump is cut in.
+     */
+    public int numberOfChunks() {
+        return boundaries.length - 1;
+    }
+
+    private long sizeOf(int chunk) {
+        return boundaries[chunk + 1] - boundaries[chunk];
+    }
+
+    private List<DblpRecord> parse(int chunk) throws IOException, XMLStreamException {
+        InputStream xml = new SequenceInputStream(Collections.enumeration(List.of(
+                new ByteArrayInputStream(prologue),
+                new ByteArrayInputStream(read(boundaries[chunk], boundaries[chunk + 1])),
+                new ByteArrayInputStream(END))));
+        List<DblpRecord> parsed = new ArrayList<>();
+        try (DblpStreamReader reader = new DblpStreamReader(xml, dblpXmlFilename, dtd)) {
+            reader.setFilter(filter);
+            DblpRecord record;
+            while ((record = reader.next()) != null)
+                parsed.add(record);
+        }
+        return parsed;
+    }
+
+    private static List<DblpRecord> take(Future<List<DblpRecord>> parsedChunk) throws IOException, XMLStreamException {
+        try {
+            return parsedChunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("parsing of the dblp xml interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof XMLStreamException)
+                throw (XMLStreamException) e.getCause();
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private long[] boundaries(long first, long end, int chunkSize) throws IOException {
+        List<Long> starts = new ArrayList<>();
+        starts.add(first);
+        for (long position = first + chunkSize; position < end; ) {
+            long start = nextRecordStart(position, end);
+            if (start >= end)
+                break;
+            starts.add(start);
+            position = start + chunkSize;
+        }
+        long[] boundaries = new long[starts.size() + 1];
+        for (int i = 0; i < starts.size(); i++)
+            boundaries[i] = starts.get(i);
+        boundaries[starts.size()] = end;
+        return boundaries;
+    }
+
+    // position of the closing </dblp>, the records end there
+    private long endOfRecords() throws IOException {
+        long size = channel.size();
+        long from = Math.max(0, size - 4096);
+        byte[] tail = read(from, size);
+        for (int i = tail.length - END.length; i >= 0; i--) {
+            if (matches(tail, i, END))
+                return from + i;
+        }
+        throw new IOException(dblpXmlFilename + " doesn't end with " + new String(END, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @return The position of the first record start tag at or after {@code position}, or
+     * {@code end} if there is none.
+     */
+    private long nextRecordStart(long position, long end) throws IOException {
+        // windows overlap by the longest tag, so a tag across two windows is still found
+        int overlap = 2 + RECORD_TAGS.stream().mapToInt(String::length).max().orElse(0);
+        byte[] window = new byte[1 << 16];
+        while (position < end) {
+            int length = (int) Math.min(window.length, end - position);
+            readFully(window, length, position);
+            for (int i = 0; i < length; i++) {
+                if (window[i] == '<' && isRecordStartTag(window, i + 1, length))
+                    return position + i;
+            }
+            if (position + length >= end)
+                break;
+            position += length - overlap;
+        }
+        return end;
+    }
+
+    private static boolean isRecordStartTag(byte[] bytes, int from, int length) {
+        for (String tag : RECORD_TAGS) {
+            int after = from + tag.length();
+            if (after < length && (isWhitespace(bytes[after]) || bytes[after] == '>' || bytes[after] == '/')
+                    && matches(bytes, from, tag.getBytes(StandardCharsets.US_ASCII)))
+                return true;
+        }
+        return false;
+    }
+
+    // the whitespace of xml, any of it can follow the name of a start tag
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private static boolean matches(byte[] bytes, int from, byte[] pattern) {
+        for (int i = 0; i < pattern.length; i++) {
+            if (bytes[from + i] != pattern[i])
+                return false;
+        }
+        return true;
+    }
+
+    private byte[] read(long from, long to) throws IOException {
+        byte[] bytes = new byte[Math.toIntExact(to - from)];
+        readFully(bytes, bytes.length, from);
+        return bytes;
+    }
+
+    // positional reads, safe from several threads
+    private void readFully(byte[] bytes, int length, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new EOFException("unexpected end of " + dblpXmlFilename);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        pool.shutdownNow();
+        channel.close();
+    }
+}
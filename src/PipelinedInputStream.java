@@ -0,0 +1,124 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Input stream read ahead by a thread of its own, e.g. to decompress the dump while it is parsed.
+ * The thread fills a ring of {@code numBuffers} buffers that the reader empties: the two sides
+ * only wait for each other when the ring is full or empty, and no buffer is allocated after the
+ * start. An exception of the source is thrown by the read that reaches it, an unchecked one
+ * wrapped in an {@link IOException}.
+ */
+public class PipelinedInputStream extends InputStream {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    public static final int DEFAULT_NUM_BUFFERS = 8;
+
+    private static final class Chunk {
+        private final byte[] bytes;
+        private int length;
+        // the source ends, or failed, after the bytes of this chunk
+        private boolean last;
+        private IOException error;
+
+        private Chunk(int size) {
+            this.bytes = new byte[size];
+        }
+    }
+
+    private final InputStream source;
+    private final BlockingQueue<Chunk> free;
+    private final BlockingQueue<Chunk> filled;
+    private final Thread reader;
+
+    private Chunk current = null;
+    private int position = 0;
+
+    public PipelinedInputStream(InputStream source, String threadName) {
+        this(source, threadName, DEFAULT_BUFFER_SIZE, DEFAULT_NUM_BUFFERS);
+    }
+
+    public PipelinedInputStream(InputStream source, String threadName, int bufferSize, int numBuffers) {
+        this.source = source;
+        this.free = new ArrayBlockingQueue<>(numBuffers);
+        this.filled = new ArrayBlockingQueue<>(numBuffers);
+        for (int i = 0; i < numBuffers; i++)
+            free.add(new Chunk(bufferSize));
+        this.reader = new Thread(this::fill, threadName);
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    private void fill() {
+        try {
+            Chunk chunk;
+            do {
+                chunk = free.take();
+                chunk.length = 0;
+                chunk.error = null;
+                // a buffer is handed out full, so a short fill means the end of the source
+                try {
+                    int n;
+                    while (chunk.length < chunk.bytes.length
+                            && (n = source.read(chunk.bytes, chunk.length, chunk.bytes.length - chunk.length)) >= 0)
+                        chunk.length += n;
+                } catch (IOException e) {
+                    chunk.error = e;
+                } catch (RuntimeException | Error e) {
+                    // e.g. of a decompressor on a corrupt input: without a last chunk the reader would wait forever
+                    chunk.error = new IOException(Thread.currentThread().getName() + " failed: " + e, e);
+                }
+                chunk.last = chunk.length < chunk.bytes.length || chunk.error != null;
+                filled.put(chunk);
+            } while (!chunk.last);
+        } catch (InterruptedException e) {
+            // closed
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+        if (!nextChunk())
+            return -1;
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current.bytes, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    // @return false at the end of the source
+    private boolean nextChunk() throws IOException {
+        while (current == null || position == current.length) {
+            if (current != null && current.last) {
+                if (current.error != null)
+                    throw current.error;
+                return false;
+            }
+            if (current != null)
+                free.add(current);
+            try {
+                current = filled.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while waiting for input", e);
+            }
+            position = 0;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.interrupt();
+        source.close();
+    }
+}
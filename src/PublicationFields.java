@@ -0,0 +1,199 @@
+import org.dblp.mmdb.Field;
+import org.dblp.mmdb.Publication;
+import org.dblp.mmdb.PublicationIDType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Typed view of the fields of a publication record that the export uses, decoded in a single pass
+ * over the record's fields instead of one {@code getFields(tag)} scan per getter. Missing fields
+ * are empty strings, only the first occurrence of a field is kept (as the getters of
+ * {@link MyPublication} always did), except for {@code cite} where all values are kept.
+ */
+public class PublicationFields {
+
+    private final String key;
+    private final String tag;
+    private int year;
+
+    private String title = "";
+    private String pages = "";
+    private String ee = "";
+    private String isbn = "";
+    private String url = "";
+    private String crossref = "";
+    private String school = "";
+    private String publisher = "";
+    private String volume = "";
+    private String series = "";
+    private String booktitle = "";
+    private String journal = "";
+    private final List<String> citations = new ArrayList<>();
+
+    private String doi = null;
+
+    private PublicationFields(String key, String tag, int year) {
+        this.key = key;
+        this.tag = tag;
+        this.year = year;
+    }
+
+    public static PublicationFields of(Publication publication) {
+        PublicationFields fields = new PublicationFields(publication.getKey(), publication.getTag(), publication.getYear());
+        for (Field field : publication.getFields())
+            fields.add(field.tag(), field.value());
+        return fields;
+    }
+
+    public static PublicationFields of(DblpRecord record) {
+        PublicationFields fields = new PublicationFields(record.getKey(), record.getTag(), 0);
+        for (int i = 0; i < record.numberOfFields(); i++)
+            fields.add(record.fieldTagAt(i), record.fieldValueAt(i));
+        return fields;
+    }
+
+    private void add(String fieldTag, String value) {
+        switch (fieldTag) {
+            case "title" -> title = first(title, value);
+            case "pages" -> pages = first(pages, value);
+            case "ee" -> ee = first(ee, value);
+            case "isbn" -> isbn = first(isbn, value);
+            case "url" -> url = first(url, value);
+            case "crossref" -> crossref = first(crossref, value);
+            case "school" -> school = first(school, value);
+            case "publisher" -> publisher = first(publisher, value);
+            case "volume" -> volume = first(volume, value);
+            case "series" -> series = first(series, value);
+            case "booktitle" -> booktitle = first(booktitle, value);
+            case "journal" -> journal = first(journal, value);
+            case "cite" -> {
+                if (!value.equals("..."))
+                    citations.add(value);
+            }
+            case "year" -> {
+                if (year == 0)
+                    year = parseYear(value);
+            }
+            default -> {
+            }
+        }
+    }
+
+    private static String first(String current, String value) {
+        return current.isEmpty() && value != null ? value : current;
+    }
+
+    private static int parseYear(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public List<String> generateCSVEntry() {
+        List<String> entry_publication = new ArrayList<>(11);
+        entry_publication.add(this.key);
+        entry_publication.add(this.tag);
+        entry_publication.add(this.title);
+        entry_publication.add(this.getDOI());
+        entry_publication.add(String.valueOf(this.year));
+        entry_publication.add(this.volume);
+        entry_publication.add(this.pages);
+        entry_publication.add(this.publisher);
+        entry_publication.add(this.url);
+        entry_publication.add(this.isbn);
+        entry_publication.add(this.school);
+        return entry_publication;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getPages() {
+        return pages;
+    }
+
+    public String getEe() {
+        return ee;
+    }
+
+    public String getISBN() {
+        return isbn;
+    }
+
+    public String getDOI() {
+        if (doi == null) {
+            if (!ee.isEmpty() && PublicationIDType.DOI.matchesUrl(ee))
+                doi = PublicationIDType.DOI.getID(ee);
+            else
+                // return fake (but unique) id
+                doi = String.valueOf(Math.abs(title.hashCode()));
+        }
+        return doi;
+    }
+
+    public String getURL() {
+        return url;
+    }
+
+    public String getCrossRef() {
+        return crossref;
+    }
+
+    public boolean hasCrossRef() {
+        return !crossref.isEmpty();
+    }
+
+    public String getSchool() {
+        return school;
+    }
+
+    public String getPublisher() {
+        return publisher;
+    }
+
+    public String getVolume() {
+        return volume;
+    }
+
+    public String getSeries() {
+        return series;
+    }
+
+    public String getBooktitle() {
+        return booktitle;
+    }
+
+    public String getJournal() {
+        return journal;
+    }
+
+    /**
+     * @return The cited keys (the {@code "..."} placeholders excluded), unmodifiable.
+     */
+    public List<String> getCitations() {
+        return Collections.unmodifiableList(citations);
+    }
+
+    public boolean hasContextInfo() {
+        if (this.tag.equals("inproceedings") || this.tag.equals("incollection"))
+            return this.hasCrossRef();
+        return true;
+    }
+}
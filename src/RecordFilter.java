@@ -0,0 +1,173 @@
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Records to read from the dump: by tag, by key prefix, by year range and by venue (journal or
+ * booktitle) prefix. Readers test the tag and the key as soon as they have read the start tag of
+ * a record ({@link #acceptsHeader(String, String)}) and skip the rejected records without
+ * materializing their fields; the year and the venue are tested on the fields
+ * ({@link #accepts(DblpRecord)}).
+ * <p>
+ * Person records ({@code www} with a {@code homepages/} key) always pass: the names of the
+ * authors of the kept publications are resolved with them.
+ */
+public class RecordFilter {
+
+    /**
+     * The fields {@link #accepts(DblpRecord)} reads.
+     */
+    public static final Set<String> FIELD_TAGS = Set.of("year", "journal", "booktitle");
+
+    private Set<String> tags = null;
+    private List<String> keyPrefixes = Collections.emptyList();
+    private int minYear = 0;
+    private int maxYear = Integer.MAX_VALUE;
+    private List<String> venuePrefixes = Collections.emptyList();
+
+    /**
+     * @param tags The record tags to keep (e.g. {@code article}, {@code inproceedings}).
+     */
+    public void setTags(Collection<String> tags) {
+        this.tags = new HashSet<>(tags);
+    }
+
+    /**
+     * @param keyPrefixes Prefixes of the keys to keep (e.g. {@code conf/sigmod/}).
+     */
+    public void setKeyPrefixes(List<String> keyPrefixes) {
+        this.keyPrefixes = List.copyOf(keyPrefixes);
+    }
+
+    /**
+     * Keeps the records of the years {@code minYear} to {@code maxYear} (included), records without
+     * a year are left out.
+     */
+    public void setYears(int minYear, int maxYear) {
+        this.minYear = minYear;
+        this.maxYear = maxYear;
+    }
+
+    /**
+     * @param venuePrefixes Prefixes of the journal or booktitle of the records to keep (e.g.
+     *                      {@code SIGMOD}).
+     */
+    public void setVenuePrefixes(List<String> venuePrefixes) {
+        this.venuePrefixes = List.copyOf(venuePrefixes);
+    }
+
+    /**
+     * @return Whether the filter keeps every record.
+     */
+    public boolean isEmpty() {
+        return tags == null && keyPrefixes.isEmpty() && !needsFields();
+    }
+
+    /**
+     * @return Whether the fields of a record are needed to decide on it, i.e. whether
+     * {@link #accepts(DblpRecord)} can reject a record that {@link #acceptsHeader} accepted.
+     */
+    public boolean needsFields() {
+        return minYear > 0 || maxYear < Integer.MAX_VALUE || !venuePrefixes.isEmpty();
+    }
+
+    public boolean acceptsHeader(String tag, String key) {
+        if (isPersonRecord(tag, key))
+            return true;
+        if (tags != null && !tags.contains(tag))
+            return false;
+        return keyPrefixes.isEmpty() || startsWithAny(key, keyPrefixes);
+    }
+
+    public boolean accepts(DblpRecord record) {
+        if (!acceptsHeader(record.getTag(), record.getKey()))
+            return false;
+        if (isPersonRecord(record.getTag(), record.getKey()) || !needsFields())
+            return true;
+        if (minYear > 0 || maxYear < Integer.MAX_VALUE) {
+            int year = yearOf(record);
+            if (year < minYear || year > maxYear || year == 0)
+                return false;
+        }
+        if (!venuePrefixes.isEmpty()) {
+            String venue = record.getField("journal");
+            if (venue.isEmpty())
+                venue = record.getField("booktitle");
+            return startsWithAny(venue, venuePrefixes);
+        }
+        return true;
+    }
+
+    private static boolean isPersonRecord(String tag, String key) {
+        return tag.equals("www") && key != null && key.startsWith("homepages/");
+    }
+
+    private static boolean startsWithAny(String value, List<String> prefixes) {
+        if (value == null)
+            return false;
+        for (String prefix : prefixes) {
+            if (value.startsWith(prefix))
+                return true;
+        }
+        return false;
+    }
+
+    private static int yearOf(DblpRecord record) {
+        try {
+            return Integer.parseInt(record.getField("year").trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Filters a source that can't skip records itself (e.g. a snapshot, whose records are cheap
+     * to decode).
+     */
+    public RecordSource apply(RecordSource source) {
+        if (isEmpty())
+            return source;
+        return new RecordSource() {
+            @Override
+            public DblpRecord next() throws IOException, XMLStreamException {
+                DblpRecord record;
+                while ((record = source.next()) != null && !accepts(record)) {
+                }
+                return record;
+            }
+
+            // the rejected records after the position are filtered again after a seek
+            @Override
+            public long position() {
+                return source.position();
+            }
+
+            @Override
+            public void seek(long position) throws IOException {
+                source.seek(position);
+            }
+
+            @Override
+            public void close() throws IOException {
+                source.close();
+            }
+        };
+    }
+
+    /**
+     * @return A description of the filter, the same for equal filters (recorded in checkpoints).
+     */
+    @Override
+    public String toString() {
+        StringJoiner description = new StringJoiner(" ");
+        if (tags != null)
+            description.add("tags=" + String.join(",", new TreeSet<>(tags)));
+        if (!keyPrefixes.isEmpty())
+            description.add("keys=" + String.join(",", keyPrefixes));
+        if (minYear > 0 || maxYear < Integer.MAX_VALUE)
+            description.add("years=" + minYear + "-" + (maxYear < Integer.MAX_VALUE ? maxYear : ""));
+        if (!venuePrefixes.isEmpty())
+            description.add("venues=" + String.join(",", venuePrefixes));
+        return description.toString();
+    }
+}
@@ -0,0 +1,51 @@
+import javax.xml.stream.XMLStreamException;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Sequential source of {@link DblpRecord}s, e.g. the xml dump or a binary snapshot of it.
+ */
+public interface RecordSource extends Closeable {
+
+    /**
+     * Reads the next record.
+     *
+     * @return The record, or {@code null} if there are no more records.
+     */
+    DblpRecord next() throws IOException, XMLStreamException;
+
+    /**
+     * Skips the next records, e.g. to resume an export from a checkpoint.
+     *
+     * @return The number of records skipped, less than asked at the end of the source.
+     */
+    default long skip(long numRecords) throws IOException, XMLStreamException {
+        long skipped = 0;
+        while (skipped < numRecords && next() != null)
+            skipped++;
+        return skipped;
+    }
+
+    /**
+     * @return The position of the next record in the input, to {@link #seek(long)} back to it
+     * later, or -1 if the source can't seek.
+     */
+    default long position() {
+        return -1;
+    }
+
+    /**
+     * Moves to a position returned by {@link #position()}, e.g. to resume an export from a
+     * checkpoint without reading the records before it again.
+     */
+    default void seek(long position) throws IOException {
+        throw new UnsupportedOperationException(getClass().getName() + " can't seek");
+    }
+
+    /**
+     * Opens a new {@link RecordSource} positioned on the first record.
+     */
+    interface Factory {
+        RecordSource open() throws IOException, XMLStreamException;
+    }
+}
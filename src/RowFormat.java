@@ -0,0 +1,18 @@
+import java.util.List;
+
+/**
+ * Transformation applied by a {@link CSVSink} to every row before writing it, e.g. to add the
+ * columns needed by a specific importer.
+ */
+public interface RowFormat {
+
+    /**
+     * @return The header row written first in the file, or {@code null} for no header.
+     */
+    List<String> header();
+
+    /**
+     * @return The row to write instead of the given one, or {@code null} to drop it.
+     */
+    List<String> format(List<String> row);
+}
@@ -0,0 +1,142 @@
+import java.util.Arrays;
+
+/**
+ * Degrees of separation between two authors: shortest path in a {@link CoauthorGraph} by
+ * bidirectional BFS. Each step expands one whole level of the smaller of the two frontiers, so a
+ * query only visits the neighbourhoods of both ends up to about half the distance.
+ * <p>
+ * The visit arrays are allocated once per finder and invalidated between queries by bumping a
+ * stamp, a query costs nothing proportional to the graph size. A finder is not thread-safe, use
+ * one per thread (they can share the graph).
+ */
+public class SeparationFinder {
+
+    private final CoauthorGraph graph;
+
+    // per side: stamp of the query that reached the node, its BFS parent and its distance
+    private final int[] seenForward;
+    private final int[] seenBackward;
+    private final int[] parentForward;
+    private final int[] parentBackward;
+    private final int[] distForward;
+    private final int[] distBackward;
+    private int stamp = 0;
+
+    private int[] frontierForward = new int[256];
+    private int[] frontierBackward = new int[256];
+    private int[] nextFrontier = new int[256];
+
+    private long numVisited = 0;
+
+    public SeparationFinder(CoauthorGraph graph) {
+        this.graph = graph;
+        int n = graph.size();
+        this.seenForward = new int[n];
+        this.seenBackward = new int[n];
+        this.parentForward = new int[n];
+        this.parentBackward = new int[n];
+        this.distForward = new int[n];
+        this.distBackward = new int[n];
+    }
+
+    /**
+     * @return The ids of the persons on a shortest coauthor path from {@code source} to
+     * {@code target} (both included, so the degrees of separation are {@code length - 1}), or
+     * {@code null} if they are not connected.
+     */
+    public int[] shortestPath(int source, int target) {
+        if (source == target)
+            return new int[]{source};
+        nextStamp();
+
+        seenForward[source] = stamp;
+        parentForward[source] = -1;
+        distForward[source] = 0;
+        seenBackward[target] = stamp;
+        parentBackward[target] = -1;
+        distBackward[target] = 0;
+        frontierForward[0] = source;
+        frontierBackward[0] = target;
+        int forwardSize = 1;
+        int backwardSize = 1;
+
+        while (forwardSize > 0 && backwardSize > 0) {
+            boolean forward = forwardSize <= backwardSize;
+            int[] frontier = forward ? frontierForward : frontierBackward;
+            int size = forward ? forwardSize : backwardSize;
+            int[] seen = forward ? seenForward : seenBackward;
+            int[] parent = forward ? parentForward : parentBackward;
+            int[] dist = forward ? distForward : distBackward;
+            int[] otherSeen = forward ? seenBackward : seenForward;
+            int[] otherDist = forward ? distBackward : distForward;
+
+            // the whole level is expanded, then the meeting node of the shortest path is kept
+            int meeting = -1;
+            int bestLength = Integer.MAX_VALUE;
+            int nextSize = 0;
+            for (int f = 0; f < size; f++) {
+                int u = frontier[f];
+                for (int i = 0, degree = graph.degree(u); i < degree; i++) {
+                    int v = graph.neighborAt(u, i);
+                    if (seen[v] == stamp)
+                        continue;
+                    seen[v] = stamp;
+                    parent[v] = u;
+                    dist[v] = dist[u] + 1;
+                    numVisited++;
+                    if (otherSeen[v] == stamp) {
+                        int length = dist[v] + otherDist[v];
+                        if (length < bestLength) {
+                            bestLength = length;
+                            meeting = v;
+                        }
+                    }
+                    if (nextSize == nextFrontier.length)
+                        nextFrontier = Arrays.copyOf(nextFrontier, nextSize * 2);
+                    nextFrontier[nextSize++] = v;
+                }
+            }
+            if (meeting >= 0)
+                return path(meeting);
+
+            // the expanded frontier becomes the spare buffer
+            int[] expanded = frontier;
+            if (forward) {
+                frontierForward = nextFrontier;
+                forwardSize = nextSize;
+            } else {
+                frontierBackward = nextFrontier;
+                backwardSize = nextSize;
+            }
+            nextFrontier = expanded;
+        }
+        return null;
+    }
+
+    /**
+     * @return The number of nodes reached by all the queries so far.
+     */
+    public long getNumVisited() {
+        return numVisited;
+    }
+
+    private int[] path(int meeting) {
+        int[] path = new int[distForward[meeting] + distBackward[meeting] + 1];
+        int i = distForward[meeting];
+        for (int v = meeting; v >= 0; v = parentForward[v])
+            path[i--] = v;
+        i = distForward[meeting];
+        for (int v = meeting; v >= 0; v = parentBackward[v])
+            path[i++] = v;
+        return path;
+    }
+
+    private void nextStamp() {
+        if (stamp == Integer.MAX_VALUE) {
+            Arrays.fill(seenForward, 0);
+            Arrays.fill(seenBackward, 0);
+            stamp = 0;
+        }
+        stamp++;
+    }
+}
@@ -0,0 +1,113 @@
+import org.dblp.mmdb.Person;
+import org.dblp.mmdb.RecordDbInterface;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Batch of degrees-of-separation queries answered from the {@link CoauthorGraph} (see
+ * {@link SeparationFinder}) instead of a {@code shortestPath} query in Neo4j.
+ * <p>
+ * Input: one pair per line, the two authors separated by a tab, each given by PID or by name.
+ * Output ({@code separation.csv}): source PID, target PID, degrees of separation (-1 if the
+ * authors are not connected or unknown), then the PIDs and the names of the intermediate authors,
+ * separated by {@code ;}.
+ */
+public abstract class SeparationQueries {
+
+    public static final String OUTPUT_FILE_NAME = "separation.csv";
+
+    /**
+     * Answers the pairs of the given file, on {@code numThreads} threads with a
+     * {@link SeparationFinder} each.
+     */
+    public static void run(RecordDbInterface dblp, CoauthorGraph graph, String pairsFilename, String resultsDirectoryPath, int numThreads) throws IOException {
+        List<String[]> pairs = readPairs(pairsFilename);
+        List<List<String>> rows = new ArrayList<>(Collections.nCopies(pairs.size(), null));
+
+        long start = System.currentTimeMillis();
+        int chunk = (pairs.size() + numThreads - 1) / Math.max(1, numThreads);
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, numThreads));
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int from = 0; from < pairs.size(); from += chunk) {
+                int to = Math.min(pairs.size(), from + chunk);
+                int first = from;
+                tasks.add(pool.submit(() -> {
+                    SeparationFinder finder = new SeparationFinder(graph);
+                    for (int i = first; i < to; i++)
+                        rows.set(i, answer(dblp, graph, finder, pairs.get(i)));
+                }));
+            }
+            for (Future<?> task : tasks)
+                task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("separation queries interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("separation query failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        long elapsed = Math.max(1, System.currentTimeMillis() - start);
+
+        try (CSVSink separation = new CSVSink(resultsDirectoryPath + OUTPUT_FILE_NAME, false)) {
+            separation.addAll(rows);
+        }
+        System.out.format("%d separation queries in %d ms (%.0f queries/s)\n", pairs.size(), elapsed, pairs.size() * 1000.0 / elapsed);
+    }
+
+    private static List<String> answer(RecordDbInterface dblp, CoauthorGraph graph, SeparationFinder finder, String[] pair) {
+        int source = idOf(dblp, graph, pair[0]);
+        int target = idOf(dblp, graph, pair[1]);
+        int[] path = source >= 0 && target >= 0 ? finder.shortestPath(source, target) : null;
+
+        List<String> row = new ArrayList<>(5);
+        row.add(source >= 0 ? graph.pidOf(source) : pair[0]);
+        row.add(target >= 0 ? graph.pidOf(target) : pair[1]);
+        row.add(String.valueOf(path != null ? path.length - 1 : -1));
+        StringJoiner pids = new StringJoiner(";");
+        StringJoiner names = new StringJoiner(";");
+        for (int i = 1; path != null && i < path.length - 1; i++) {
+            pids.add(graph.pidOf(path[i]));
+            names.add(graph.personOf(path[i]).getPrimaryName().name());
+        }
+        row.add(pids.toString());
+        row.add(names.toString());
+        return row;
+    }
+
+    /**
+     * @return The graph id of the author given by PID or by name, -1 if unknown.
+     */
+    static int idOf(RecordDbInterface dblp, CoauthorGraph graph, String author) {
+        int id = graph.idOf(author);
+        if (id >= 0)
+            return id;
+        Person person = dblp.getPersonByName(author);
+        return person != null ? graph.idOf(person.getPid()) : -1;
+    }
+
+    private static List<String[]> readPairs(String pairsFilename) throws IOException {
+        List<String[]> pairs = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(pairsFilename, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank())
+                    continue;
+                String[] pair = line.split("\t");
+                if (pair.length != 2)
+                    throw new IOException("not a tab separated pair of authors: " + line);
+                pairs.add(new String[]{pair[0].trim(), pair[1].trim()});
+            }
+        }
+        return pairs;
+    }
+}
@@ -0,0 +1,392 @@
+import javax.xml.stream.XMLStreamException;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Export mode that never builds the {@link org.dblp.mmdb.RecordDb}: the dump is pulled record by
+ * record from a {@link RecordSource} (the xml through {@link DblpStreamReader}, or a
+ * {@link DblpSnapshot}) and every row is written as soon as the record has been read. The only
+ * state kept in memory is the working set needed to resolve and deduplicate rows (person
+ * names -> PID, journal titles, already written author PIDs).
+ * <p>
+ * The dump is read twice: the first pass only looks at the person records ({@code www} with a
+ * {@code homepages/} key) and the keys of the proceedings, the second one at the publications. The
+ * second pass can be checkpointed every few records and resumed after a crash from the last
+ * checkpoint: the source seeks to the first record not exported yet (see
+ * {@link RecordSource#seek(long)}) and the index of the first pass is read back from the
+ * checkpoint instead of the dump.
+ */
+public class StreamingExporter {
+
+    /**
+     * The fields of the records the export reads (see {@link PublicationFields} and
+     * {@link DblpRecord#getNames()}), a reader can leave the others out.
+     */
+    public static final Set<String> FIELD_TAGS = Set.of("author", "editor", "title", "pages", "ee", "isbn", "url",
+            "crossref", "school", "publisher", "volume", "series", "booktitle", "journal", "cite", "year");
+
+    private final RecordSource.Factory sources;
+    private final String resultsDirectoryPath;
+
+    // name (primary or alias) -> person
+    private final Map<String, PersonEntry> personsByName = new HashMap<>();
+    // the contexts a crossref can point to, the books of the incollections are not contexts
+    private final Set<String> proceedingsKeys = new HashSet<>();
+    // journal title -> context key
+    private final Map<String, String> journalKeysByTitle = new HashMap<>();
+    private final Set<String> writtenAuthorPids = new HashSet<>();
+    // authors written since the last checkpoint, appended to the checkpoint's authors file
+    private final List<String> newAuthorPids = new ArrayList<>();
+
+    private boolean gzipOutput = false;
+    private Neo4jImportFormat neo4jImportFormat = null;
+    private boolean writeManifest = false;
+    private String previousManifest = null;
+    private ExportDelta exportDelta = null;
+    private long checkpointInterval = 0;
+    private boolean resume = false;
+    private ExportCheckpoint resumedCheckpoint = null;
+    private String filterDescription = "";
+    private CitationLeaderboard citationLeaderboard = null;
+    private final List<CSVSink> sinks = new ArrayList<>();
+
+    private long numPublications = 0;
+    private long numUnresolvedNames = 0;
+
+    public StreamingExporter(RecordSource.Factory sources, String resultsDirectoryPath) {
+        this.sources = sources;
+        this.resultsDirectoryPath = resultsDirectoryPath;
+    }
+
+    /**
+     * Whether to gzip the CSV files on the fly ({@code .gz} is appended to their names).
+     */
+    public void setGzipOutput(boolean gzipOutput) {
+        this.gzipOutput = gzipOutput;
+    }
+
+    /**
+     * Whether to write the files in the format of {@code neo4j-admin database import} (see
+     * {@link Neo4jImportFormat}) instead of plain CSV.
+     */
+    public void setNeo4jImportFormat(boolean neo4jImport) {
+        this.neo4jImportFormat = neo4jImport ? new Neo4jImportFormat() : null;
+    }
+
+    /**
+     * Whether to record a manifest of the export, for a later delta export (see
+     * {@link ExportDelta}).
+     */
+    public void setWriteManifest(boolean writeManifest) {
+        this.writeManifest = writeManifest;
+    }
+
+    /**
+     * Manifest of a previous export: only the rows added or changed since then are written, plus
+     * delete files for the rows gone (see {@link ExportDelta}). Implies a new manifest.
+     */
+    public void setPreviousManifest(String previousManifest) {
+        this.previousManifest = previousManifest;
+        this.writeManifest = true;
+    }
+
+    /**
+     * Number of publication records between two checkpoints of the export (see
+     * {@link ExportCheckpoint}), 0 for no checkpoints. Not supported with a manifest or the neo4j
+     * import format, whose state is not checkpointed, nor with a source that can't seek.
+     */
+    public void setCheckpointInterval(long checkpointInterval) {
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * Whether to resume the export from the checkpoint in the results directory, if there is one.
+     */
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
+    /**
+     * Number of most cited publications per year to write in {@code citation_leaderboard.csv}, 0
+     * (the default) for no leaderboard. Its counters are not checkpointed.
+     */
+    public void setCitationLeaderboardSize(int k) {
+        this.citationLeaderboard = k > 0 ? new CitationLeaderboard(k) : null;
+    }
+
+    /**
+     * The record filter the sources apply, if any. Only recorded in the checkpoints: an export is
+     * not resumed with another filter.
+     */
+    public void setRecordFilter(RecordFilter filter) {
+        this.filterDescription = filter != null ? filter.toString() : "";
+    }
+
+    public void export() throws IOException, XMLStreamException {
+        if ((checkpointInterval > 0 || resume) && (writeManifest || neo4jImportFormat != null))
+            throw new IllegalStateException("checkpoints are not supported with a manifest or the neo4j import format");
+        if (resume && citationLeaderboard != null)
+            throw new IllegalStateException("the citation leaderboard cannot be resumed");
+        if (writeManifest)
+            exportDelta = new ExportDelta(resultsDirectoryPath, previousManifest, gzipOutput);
+        if (resume && ExportCheckpoint.exists(resultsDirectoryPath))
+            restore(ExportCheckpoint.read(resultsDirectoryPath));
+        else if (checkpointInterval > 0 || resume)
+            // leftovers of an export that is not resumed
+            ExportCheckpoint.delete(resultsDirectoryPath);
+
+        // the index is checkpointed as the pid, url and names of every person record
+        List<List<String>> persons = new ArrayList<>();
+        if (resumedCheckpoint != null && ExportCheckpoint.readIndex(resultsDirectoryPath, persons, proceedingsKeys)) {
+            persons.forEach(this::indexPerson);
+            System.out.format("read the index of %d person names from the checkpoint\n", personsByName.size());
+        } else {
+            System.out.println("streaming pass 1/2: person records ...");
+            persons.clear();
+            proceedingsKeys.clear();
+            try (RecordSource reader = sources.open()) {
+                if (checkpointInterval > 0 && reader.position() < 0)
+                    throw new IllegalStateException("checkpoints need a source that can seek");
+                DblpRecord record;
+                while ((record = reader.next()) != null) {
+                    if (record.getTag().equals("proceedings"))
+                        proceedingsKeys.add(record.getKey());
+                    if (!record.isPersonRecord())
+                        continue;
+                    List<String> person = new ArrayList<>();
+                    person.add(record.getPid());
+                    person.add(record.getField("url"));
+                    person.addAll(record.getFields("author"));
+                    indexPerson(person);
+                    if (checkpointInterval > 0)
+                        persons.add(person);
+                }
+            }
+            System.out.format("indexed %d person names\n", personsByName.size());
+            if (checkpointInterval > 0)
+                ExportCheckpoint.writeIndex(resultsDirectoryPath, persons, proceedingsKeys);
+        }
+        // the index is in personsByName now
+        persons = null;
+
+        System.out.println("streaming pass 2/2: publication records ...");
+        try (RecordSource reader = sources.open();
+             CSVSink authors = writer("authors.csv", ExportDelta.NODE);
+             CSVSink authorPubs = writer("author_pubs_relation.csv", ExportDelta.RELATIONSHIP);
+             CSVSink publications = writer("publications.csv", ExportDelta.NODE);
+             CSVSink citations = writer("pub_pubs_relation.csv", ExportDelta.RELATIONSHIP);
+             CSVSink contextPubs = writer("context_pubs_relation.csv", ExportDelta.RELATIONSHIP);
+             CSVSink contexts = writer("contexts.csv", ExportDelta.NODE);
+             CSVSink authorAssociations = writer("author_association_relation.csv", ExportDelta.RELATIONSHIP);
+             CSVSink pubAuthorCitations = writer("pub_author_citations.csv", ExportDelta.NODE)) {
+
+            long numRecords = 0;
+            if (resumedCheckpoint != null) {
+                if (reader.position() < 0)
+                    throw new IllegalStateException("resuming needs a source that can seek");
+                reader.seek(resumedCheckpoint.position);
+                numRecords = resumedCheckpoint.numRecords;
+                System.out.format("resumed after %d records\n", numRecords);
+            }
+            long resumedRecords = numRecords;
+
+            for (DblpRecord record; ; numRecords++) {
+                // every record before the position is exported, the checkpoint resumes from it
+                if (checkpointInterval > 0 && numRecords != resumedRecords && numRecords % checkpointInterval == 0)
+                    checkpoint(numRecords, reader.position());
+                if ((record = reader.next()) == null)
+                    break;
+
+                if (record.getTag().equals("www") || record.getTag().equals("person") || record.getTag().equals("data"))
+                    continue;
+
+                PublicationFields fields = PublicationFields.of(record);
+
+                if (record.getTag().equals("proceedings")) {
+                    // contexts.csv, same columns as Conference
+                    String confName = fields.getBooktitle();
+                    if (confName.isEmpty())
+                        confName = fields.getSeries();
+                    contexts.add(Arrays.asList(record.getKey(), fields.getTitle(), confName,
+                            String.valueOf(fields.getYear()), fields.getVolume(), fields.getPublisher(), fields.getURL()));
+                    continue;
+                }
+
+                if (!fields.hasContextInfo())
+                    continue;
+
+                // publications.csv
+                publications.add(fields.generateCSVEntry());
+                numPublications++;
+
+                // contexts.csv and context_pubs_relation.csv
+                if (record.getTag().equals("article")) {
+                    String journalTitle = fields.getJournal();
+                    if (!journalTitle.isEmpty()) {
+                        String journalKey = journalKeysByTitle.get(journalTitle);
+                        if (journalKey == null) {
+                            journalKey = journalKeyOf(record.getKey());
+                            journalKeysByTitle.put(journalTitle, journalKey);
+                            contexts.add(Arrays.asList(journalKey, journalTitle));
+                        }
+                        contextPubs.add(Arrays.asList(journalKey, record.getKey()));
+                    }
+                } else if (fields.hasCrossRef() && proceedingsKeys.contains(fields.getCrossRef())) {
+                    contextPubs.add(Arrays.asList(fields.getCrossRef(), record.getKey()));
+                }
+
+                // authors.csv, author_association_relation.csv and author_pubs_relation.csv, once
+                // per person even if a record repeats a name or has two of its names
+                List<String> names = record.getNames();
+                Set<String> pids = new HashSet<>();
+                for (String name : names) {
+                    PersonEntry person = personsByName.get(name);
+                    if (person == null) {
+                        numUnresolvedNames++;
+                        continue;
+                    }
+                    if (writtenAuthorPids.add(person.pid)) {
+                        if (checkpointInterval > 0)
+                            newAuthorPids.add(person.pid);
+                        authors.add(person.generateCSVEntry());
+                        authorAssociations.add(Arrays.asList(person.pid, AssociationUtils.getAssociationOf(person.pid).getId()));
+                    }
+                    if (pids.add(person.pid))
+                        authorPubs.add(Arrays.asList(person.pid, record.getKey()));
+                }
+
+                // pub_pubs_relation.csv and pub_author_citations.csv, a record can repeat a <cite>
+                List<String> cites = fields.getCitations();
+                for (String cit : new LinkedHashSet<>(cites))
+                    citations.add(Arrays.asList(record.getKey(), cit));
+                if (citationLeaderboard != null)
+                    citationLeaderboard.add(fields.getYear(), cites);
+
+                List<String> authors_citations = new ArrayList<>();
+                authors_citations.add(record.getKey());
+                authors_citations.add(fields.getTitle());
+                authors_citations.addAll(names);
+                authors_citations.add("STOP1");
+                authors_citations.addAll(cites);
+                pubAuthorCitations.add(authors_citations);
+            }
+        }
+
+        if (citationLeaderboard != null)
+            citationLeaderboard.write(resultsDirectoryPath, gzipOutput);
+        if (checkpointInterval > 0 || resume)
+            ExportCheckpoint.delete(resultsDirectoryPath);
+        sinks.forEach(sink -> System.out.println(sink.report()));
+        System.out.format("streamed %d publications, %d authors, %d journals (%d unresolved author names)\n",
+                numPublications, writtenAuthorPids.size(), journalKeysByTitle.size(), numUnresolvedNames);
+    }
+
+    /**
+     * Writes associations.csv, the last file of the export (and the arguments of
+     * {@code neo4j-admin database import} when writing its format, or the manifest and delete
+     * files of a delta).
+     */
+    public void exportAssociations(Set<List<String>> association_entries) throws IOException {
+        try (CSVSink associations = writer("associations.csv", ExportDelta.NODE)) {
+            associations.addAll(association_entries);
+        }
+        if (neo4jImportFormat != null)
+            neo4jImportFormat.writeImportArguments(resultsDirectoryPath, gzipOutput);
+        if (exportDelta != null)
+            exportDelta.finish();
+    }
+
+    private void restore(ExportCheckpoint checkpoint) throws IOException {
+        if (checkpoint.gzip != gzipOutput)
+            throw new IOException("the checkpoint in " + resultsDirectoryPath + " was written " + (checkpoint.gzip ? "with" : "without") + " gzip");
+        if (!checkpoint.filter.equals(filterDescription))
+            throw new IOException("the checkpoint in " + resultsDirectoryPath + " was written with the record filter \""
+                    + checkpoint.filter + "\", not \"" + filterDescription + "\"");
+        resumedCheckpoint = checkpoint;
+        journalKeysByTitle.putAll(checkpoint.journalKeysByTitle);
+        checkpoint.readAuthorPids(resultsDirectoryPath, writtenAuthorPids);
+        numPublications = checkpoint.numPublications;
+        numUnresolvedNames = checkpoint.numUnresolvedNames;
+    }
+
+    private void checkpoint(long numRecords, long position) throws IOException {
+        ExportCheckpoint checkpoint = new ExportCheckpoint();
+        checkpoint.numRecords = numRecords;
+        checkpoint.position = position;
+        checkpoint.gzip = gzipOutput;
+        checkpoint.filter = filterDescription;
+        for (CSVSink sink : sinks)
+            checkpoint.sinkPositions.put(new File(sink.getFileName()).getName(), sink.checkpoint());
+        checkpoint.journalKeysByTitle.putAll(journalKeysByTitle);
+        // only the authors written since the last checkpoint are appended
+        checkpoint.authorPidsLength = ExportCheckpoint.appendAuthorPids(resultsDirectoryPath, newAuthorPids);
+        newAuthorPids.clear();
+        checkpoint.numPublications = numPublications;
+        checkpoint.numUnresolvedNames = numUnresolvedNames;
+        checkpoint.write(resultsDirectoryPath);
+        System.out.format("checkpoint after %d records\n", numRecords);
+    }
+
+    // pid, url, then the names of a person record
+    private void indexPerson(List<String> person) {
+        if (person.size() < 3)
+            return;
+        List<String> names = person.subList(2, person.size());
+        PersonEntry entry = new PersonEntry(person.get(0), names.get(0), person.get(1));
+        names.forEach(name -> personsByName.putIfAbsent(name, entry));
+    }
+
+    // identityColumns: ExportDelta.NODE or ExportDelta.RELATIONSHIP
+    private CSVSink writer(String fileName, int identityColumns) throws IOException {
+        // every record is read once, rows are unique already (the relations of a record are
+        // deduplicated when they are written)
+        CSVSink.Position resumeFrom = null;
+        if (resumedCheckpoint != null) {
+            resumeFrom = resumedCheckpoint.sinkPositions.get(gzipOutput ? fileName + ".gz" : fileName);
+            if (resumeFrom == null && !fileName.equals("associations.csv"))
+                throw new IOException("no position of " + fileName + " in the checkpoint");
+        }
+        CSVSink sink = new CSVSink(resultsDirectoryPath + fileName, false, gzipOutput, rowFormatOf(fileName, identityColumns), resumeFrom);
+        sinks.add(sink);
+        return sink;
+    }
+
+    private RowFormat rowFormatOf(String fileName, int identityColumns) throws IOException {
+        if (exportDelta != null)
+            return exportDelta.forFile(fileName, identityColumns);
+        if (neo4jImportFormat != null)
+            return neo4jImportFormat.forFile(fileName);
+        return null;
+    }
+
+    // same key as Journal#generateContextKey()
+    private static String journalKeyOf(String pubKey) {
+        int lastSlashIdx = pubKey.lastIndexOf('/');
+        if (lastSlashIdx < 0)
+            return pubKey;
+        return pubKey.substring(0, lastSlashIdx);
+    }
+
+    private static final class PersonEntry {
+        private final String pid;
+        private final String primaryName;
+        private final String url;
+
+        private PersonEntry(String pid, String primaryName, String url) {
+            this.pid = pid;
+            this.primaryName = primaryName;
+            this.url = url;
+        }
+
+        // same columns as Author#generateCSVEntry()
+        private List<String> generateCSVEntry() {
+            List<String> entry_author = new ArrayList<>();
+            entry_author.add(this.pid);
+            entry_author.add(this.primaryName);
+            if (!this.url.isEmpty())
+                entry_author.add(this.url);
+            return entry_author;
+        }
+    }
+}
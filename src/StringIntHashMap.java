@@ -0,0 +1,94 @@
+import java.util.Arrays;
+
+/**
+ * Map from {@link String} to primitive {@code int} (open addressing, linear probing), the keys and
+ * values in two parallel arrays instead of a boxed {@link Integer} plus a hash map node per entry.
+ * Keys can't be null.
+ */
+public class StringIntHashMap {
+
+    // null marks an empty slot
+    private String[] keys;
+    private int[] values;
+    private int size = 0;
+
+    public StringIntHashMap() {
+        this(16);
+    }
+
+    public StringIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        this.keys = new String[capacity];
+        this.values = new int[capacity];
+    }
+
+    public void put(String key, int value) {
+        if ((size + 1) * 2 > keys.length)
+            grow();
+        if (insert(keys, values, key, value))
+            size++;
+    }
+
+    public boolean containsKey(String key) {
+        return slotOf(key) >= 0;
+    }
+
+    /**
+     * @return The value of the key, or {@code defaultValue} if the key is not in the map.
+     */
+    public int getOrDefault(String key, int defaultValue) {
+        int slot = slotOf(key);
+        return slot >= 0 ? values[slot] : defaultValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, null);
+        size = 0;
+    }
+
+    private int slotOf(String key) {
+        int mask = keys.length - 1;
+        for (int i = index(key, mask); keys[i] != null; i = (i + 1) & mask) {
+            if (keys[i].equals(key))
+                return i;
+        }
+        return -1;
+    }
+
+    // @return true if the key was not in the map yet
+    private static boolean insert(String[] keys, int[] values, String key, int value) {
+        int mask = keys.length - 1;
+        int i = index(key, mask);
+        while (keys[i] != null) {
+            if (keys[i].equals(key)) {
+                values[i] = value;
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        return true;
+    }
+
+    private void grow() {
+        String[] grownKeys = new String[keys.length * 2];
+        int[] grownValues = new int[keys.length * 2];
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null)
+                insert(grownKeys, grownValues, keys[i], values[i]);
+        }
+        keys = grownKeys;
+        values = grownValues;
+    }
+
+    // String#hashCode is cached, the multiplication spreads its low bits
+    private static int index(String key, int mask) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,45 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Runs every test of this directory, see {@link Check}. Exits with status 1 if one fails.
+ */
+public class AllTests {
+
+    private interface Test {
+        void run(String[] args) throws Exception;
+    }
+
+    public static void main(String[] args) {
+        Map<String, Test> tests = new LinkedHashMap<>();
+        tests.put("DblpSnapshotTest", DblpSnapshotTest::main);
+        tests.put("CSVEncoderTest", CSVEncoderTest::main);
+        tests.put("CSVSinkTest", CSVSinkTest::main);
+        tests.put("LongHashSetTest", LongHashSetTest::main);
+        tests.put("LongLongHashMapTest", LongLongHashMapTest::main);
+        tests.put("StringIntHashMapTest", StringIntHashMapTest::main);
+        tests.put("ExportDeltaTest", ExportDeltaTest::main);
+        tests.put("AsyncFileOutputStreamTest", AsyncFileOutputStreamTest::main);
+        tests.put("CitationLeaderboardTest", CitationLeaderboardTest::main);
+        tests.put("SeparationFinderTest", SeparationFinderTest::main);
+        tests.put("CitationRankTest", CitationRankTest::main);
+        tests.put("ParallelDblpReaderTest", ParallelDblpReaderTest::main);
+        tests.put("MappedDblpReaderTest", MappedDblpReaderTest::main);
+        tests.put("CompressedInputTest", CompressedInputTest::main);
+
+        int numFailures = 0;
+        for (Map.Entry<String, Test> test : tests.entrySet()) {
+            try {
+                test.getValue().run(new String[0]);
+                System.out.println("ok      " + test.getKey());
+            } catch (Exception | AssertionError e) {
+                numFailures++;
+                System.out.println("FAILED  " + test.getKey() + ": " + e);
+                e.printStackTrace();
+            }
+        }
+        System.out.format("%d tests, %d failed\n", tests.size(), numFailures);
+        if (numFailures > 0)
+            System.exit(1);
+    }
+}
@@ -0,0 +1,74 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * {@link AsyncFileOutputStream}: a stream reopened at the length returned by a checkpoint drops
+ * what was written after it and appends; a gzipped file is then a sequence of gzip members that
+ * decompresses as the concatenation of what was checkpointed.
+ */
+public class AsyncFileOutputStreamTest {
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Check.temporaryDirectory();
+        Path file = directory.resolve("rows");
+        try {
+            for (boolean gzip : new boolean[]{false, true}) {
+                String what = gzip ? "gzipped" : "plain";
+
+                long checkpoint;
+                try (AsyncFileOutputStream out = new AsyncFileOutputStream(file, gzip)) {
+                    out.write(bytes("a,1\n"));
+                    out.write(bytes("b,2\n"));
+                    checkpoint = out.checkpoint();
+                    Check.checkEquals(Files.size(file), checkpoint, what + " length at the checkpoint");
+                    // checkpointing again without writing doesn't change the file
+                    Check.checkEquals(checkpoint, out.checkpoint(), what + " second checkpoint");
+                    // lost in the crash
+                    out.write(bytes("c,3\n"));
+                }
+                Check.checkEquals("a,1\nb,2\nc,3\n", read(file, gzip), what + " content before the crash");
+
+                try (AsyncFileOutputStream out = new AsyncFileOutputStream(file, gzip, checkpoint)) {
+                    out.write(bytes("c,4\n"));
+                    long next = out.checkpoint();
+                    Check.check(next > checkpoint, what + " file grows after the resume");
+                    out.write(bytes("d,5\n"));
+                }
+                Check.checkEquals("a,1\nb,2\nc,4\nd,5\n", read(file, gzip), what + " content after the resume");
+
+                long length = Files.size(file);
+                try {
+                    new AsyncFileOutputStream(file, gzip, length + 1).close();
+                    throw new AssertionError(what + ": a checkpoint past the end of the file is accepted");
+                } catch (IOException expected) {
+                    Check.checkEquals(length, Files.size(file), what + " length after a rejected resume");
+                }
+
+                // a new file with nothing written is still a valid (empty) file
+                new AsyncFileOutputStream(file, gzip).close();
+                Check.checkEquals("", read(file, gzip), what + " empty file");
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String read(Path file, boolean gzip) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        if (!gzip)
+            return new String(bytes, StandardCharsets.UTF_8);
+        // GZIPInputStream reads the members one after the other
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * {@link CSVEncoder} gives byte for byte the output of the regex escaping of {@link CSVWriter}
+ * before it (copied below, as in {@code bench/CSVEncoderBenchmark}), on the special cases and on
+ * random fields, with buffers small enough to flush within a field.
+ */
+public class CSVEncoderTest {
+
+    private static final String[] FIELDS = {"", "plain", "a,b", "say \"hi\"", "O'Brien", "\"", "''",
+            "line\nbreak", "crlf\r\nbreak", "cr\rbreak", "\n\n", "vt\u000Bff\fnel\u0085ls\u2028ps\u2029",
+            "quoted, with\na line break", "M\u00fcller", "\u30c7\u30fc\u30bf", "\ud83d\ude00 emoji",
+            "lone \ud83d high", "lone \ude00 low", "\ud83d", "x\u007f\u0080\u07ff\u0800\uffff"};
+
+    // chars the escaping or the encoding treat apart
+    private static final char[] ALPHABET = {'a', 'Z', '0', ' ', ',', '"', '\'', '\n', '\r', '\u000B', '\f', '\u0085',
+            '\u2028', '\u2029', '\u00e9', '\u07ff', '\u0800', '\u30c7', '\ud83d', '\ude00', '\uffff'};
+
+    public static void main(String[] args) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        for (String field : FIELDS)
+            rows.add(List.of(field));
+        rows.add(Arrays.asList(FIELDS));
+
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            List<String> row = new ArrayList<>();
+            for (int j = random.nextInt(6); j >= 0; j--) {
+                char[] field = new char[random.nextInt(40)];
+                for (int k = 0; k < field.length; k++)
+                    field[k] = ALPHABET[random.nextInt(ALPHABET.length)];
+                row.add(new String(field));
+            }
+            rows.add(row);
+        }
+
+        byte[] expected = legacy(rows);
+        for (int bufferSize : new int[]{4, 5, 7, 64, 1 << 16}) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            CSVEncoder encoder = new CSVEncoder(out, bufferSize);
+            for (List<String> row : rows)
+                encoder.writeRow(row);
+            encoder.flush();
+            checkSameBytes(expected, out.toByteArray(), "buffer of " + bufferSize + " bytes");
+            Check.checkEquals((long) expected.length, encoder.getBytesWritten(), "bytes written, buffer of " + bufferSize);
+        }
+    }
+
+    private static void checkSameBytes(byte[] expected, byte[] actual, String what) {
+        int mismatch = Arrays.mismatch(expected, actual);
+        if (mismatch >= 0) {
+            String context = new String(expected, Math.max(0, mismatch - 20), Math.min(expected.length, mismatch + 20) - Math.max(0, mismatch - 20),
+                    StandardCharsets.UTF_8);
+            throw new AssertionError(what + ": first difference at byte " + mismatch + ", around <" + context + ">");
+        }
+    }
+
+    // CSVWriter#convertToCSV before CSVEncoder
+    private static byte[] legacy(List<List<String>> rows) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintWriter pw = new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        for (List<String> row : rows)
+            pw.println(row.stream().map(CSVEncoderTest::escapeSpecialCharacters).collect(Collectors.joining(",")));
+        pw.flush();
+        return out.toByteArray();
+    }
+
+    private static String escapeSpecialCharacters(String data) {
+        String escapedData = data.replaceAll("\\R", " ");
+        if (data.contains(",") || data.contains("\"") || data.contains("'")) {
+            data = data.replace("\"", "\"\"");
+            escapedData = "\"" + data + "\"";
+        }
+        return escapedData;
+    }
+}
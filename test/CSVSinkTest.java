@@ -0,0 +1,51 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Deduplication of {@link CSVSink}: equal rows are written once, rows that only differ by where
+ * their fields are cut, by a separator char inside a field or by a null instead of an empty field
+ * are all written.
+ */
+public class CSVSinkTest {
+
+    public static void main(String[] args) throws Exception {
+        List<List<String>> distinct = List.of(
+                Arrays.asList("ab", "c"),
+                Arrays.asList("a", "bc"),
+                Arrays.asList("abc"),
+                Arrays.asList("a\u001Fb", "c"),
+                Arrays.asList("a", "b", "c"),
+                Arrays.asList("a", "b\u001Fc"),
+                Collections.singletonList(null),
+                Collections.singletonList(""),
+                Arrays.asList("", ""),
+                Arrays.asList(null, ""),
+                Arrays.asList("", null),
+                List.of());
+        for (int i = 0; i < distinct.size(); i++) {
+            for (int j = 0; j < i; j++) {
+                Check.check(CSVSink.fingerprint(distinct.get(i)) != CSVSink.fingerprint(distinct.get(j)), "fingerprint of " + distinct.get(i) + " and " + distinct.get(j));
+                Check.check(CSVSink.secondFingerprint(distinct.get(i)) != CSVSink.secondFingerprint(distinct.get(j)), "second fingerprint of " + distinct.get(i) + " and " + distinct.get(j));
+            }
+        }
+
+        Path directory = Check.temporaryDirectory();
+        Path file = directory.resolve("rows.csv");
+        try {
+            try (CSVSink sink = new CSVSink(file.toString(), true)) {
+                for (List<String> row : distinct)
+                    Check.check(sink.add(row), "row " + row + " written");
+                for (List<String> row : distinct)
+                    Check.check(!sink.add(row), "row " + row + " written twice");
+                Check.checkEquals((long) distinct.size(), sink.size(), "rows written");
+                Check.checkEquals(0L, sink.getNumCollisions(), "collisions");
+            }
+            Check.checkEquals(distinct.size(), Files.readAllLines(file).size(), "lines of the file");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
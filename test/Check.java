@@ -0,0 +1,86 @@
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Checks shared by the tests of this directory. The tests are plain main classes, like the
+ * benchmarks of {@code bench}: a failed check throws an {@link AssertionError} telling what was
+ * expected, and {@link AllTests} runs them all.
+ * <p>
+ * Usage, from the repository root after compiling {@code src} to {@code out}:
+ * {@code javac -cp out -d out test/*.java && java -cp out AllTests}
+ */
+public final class Check {
+
+    private static final String FIXTURES_PATH = "test/fixtures/";
+
+    private Check() {
+    }
+
+    public static void check(boolean condition, String message) {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+
+    public static void checkEquals(Object expected, Object actual, String what) {
+        if (!Objects.equals(expected, actual))
+            throw new AssertionError(what + ": expected <" + expected + "> but was <" + actual + ">");
+    }
+
+    public static void checkEquals(double expected, double actual, double tolerance, String what) {
+        if (!(Math.abs(expected - actual) <= tolerance))
+            throw new AssertionError(what + ": expected " + expected + " (+/- " + tolerance + ") but was " + actual);
+    }
+
+    /**
+     * @return The path of a file of {@code test/fixtures}.
+     */
+    public static String fixture(String fileName) {
+        return FIXTURES_PATH + fileName;
+    }
+
+    /**
+     * @return A new empty directory, deleted at exit if it is still empty.
+     */
+    public static Path temporaryDirectory() throws IOException {
+        Path directory = Files.createTempDirectory("dblp-test");
+        directory.toFile().deleteOnExit();
+        return directory;
+    }
+
+    /**
+     * Reads all the records of the source and closes it.
+     *
+     * @return One line per record: tag, key, mdate, then every field as {@code tag=value}.
+     */
+    public static List<String> readAll(RecordSource source) throws IOException, XMLStreamException {
+        List<String> records = new ArrayList<>();
+        try (source) {
+            DblpRecord record;
+            while ((record = source.next()) != null)
+                records.add(describe(record));
+        }
+        return records;
+    }
+
+    public static String describe(DblpRecord record) {
+        StringBuilder description = new StringBuilder();
+        description.append(record.getTag()).append(' ').append(record.getKey()).append(' ').append(record.getMdate());
+        for (int i = 0; i < record.numberOfFields(); i++)
+            description.append(" | ").append(record.fieldTagAt(i)).append('=').append(record.fieldValueAt(i));
+        return description.toString();
+    }
+
+    /**
+     * Compares two lists record by record, to tell the first one that differs.
+     */
+    public static void checkSameRecords(List<String> expected, List<String> actual, String what) {
+        for (int i = 0; i < Math.min(expected.size(), actual.size()); i++)
+            checkEquals(expected.get(i), actual.get(i), what + ", record " + i);
+        checkEquals(expected.size(), actual.size(), what + ", number of records");
+    }
+}
@@ -0,0 +1,75 @@
+import java.util.*;
+
+/**
+ * {@link CitationLeaderboard}: the top {@code k} of every year (its bounded heap) against a full
+ * count and sort of the citations, ties ranked by first citation in the input.
+ */
+public class CitationLeaderboardTest {
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        List<Integer> years = new ArrayList<>();
+        List<List<String>> citations = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            // year 0: unknown, ignored
+            years.add(random.nextInt(20) == 0 ? 0 : 2000 + random.nextInt(6));
+            List<String> cites = new ArrayList<>();
+            for (int j = random.nextInt(8); j > 0; j--) {
+                // skewed, so that there are clear leaders and many ties below them
+                int key = (int) Math.abs(random.nextGaussian() * 40) % 300;
+                cites.add(random.nextInt(10) == 0 ? "..." : "k" + key);
+            }
+            // cited twice by the same publication, counts once
+            if (!cites.isEmpty() && random.nextBoolean())
+                cites.add(cites.get(0));
+            citations.add(cites);
+        }
+
+        for (int k : new int[]{1, 3, 10, 1000}) {
+            CitationLeaderboard leaderboard = new CitationLeaderboard(k);
+            for (int i = 0; i < years.size(); i++)
+                leaderboard.add(years.get(i), citations.get(i));
+            List<List<String>> expected = expected(k, years, citations);
+            List<List<String>> actual = leaderboard.generateCSVEntries();
+            for (int i = 0; i < Math.min(expected.size(), actual.size()); i++)
+                Check.checkEquals(expected.get(i), actual.get(i), "k = " + k + ", row " + i);
+            Check.checkEquals(expected.size(), actual.size(), "k = " + k + ", number of rows");
+        }
+
+        try {
+            new CitationLeaderboard(0);
+            throw new AssertionError("k = 0 accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static List<List<String>> expected(int k, List<Integer> years, List<List<String>> citations) {
+        Map<String, Integer> firstCitation = new HashMap<>();
+        Map<Integer, Map<String, Integer>> counts = new TreeMap<>();
+        Map<Integer, Integer> yearTotals = new HashMap<>();
+        for (int i = 0; i < years.size(); i++) {
+            int year = years.get(i);
+            if (year <= 0)
+                continue;
+            for (String cite : new LinkedHashSet<>(citations.get(i))) {
+                if (cite.equals("..."))
+                    continue;
+                firstCitation.putIfAbsent(cite, firstCitation.size());
+                counts.computeIfAbsent(year, y -> new HashMap<>()).merge(cite, 1, Integer::sum);
+                yearTotals.merge(year, 1, Integer::sum);
+            }
+        }
+
+        List<List<String>> rows = new ArrayList<>();
+        counts.forEach((year, yearCounts) -> {
+            List<String> ranked = new ArrayList<>(yearCounts.keySet());
+            ranked.sort(Comparator.comparing((String key) -> -yearCounts.get(key)).thenComparing(firstCitation::get));
+            for (int rank = 0; rank < Math.min(k, ranked.size()); rank++) {
+                String key = ranked.get(rank);
+                rows.add(List.of(String.valueOf(year), String.valueOf(rank + 1), key,
+                        String.valueOf(yearCounts.get(key)), String.valueOf(yearTotals.get(year))));
+            }
+        });
+        return rows;
+    }
+}
@@ -0,0 +1,108 @@
+import java.util.*;
+
+/**
+ * {@link CitationRank}: converges to the PageRank of a plain power iteration, gives the same
+ * scores on any number of threads, and scales them to a mean of 1. Also checks the
+ * {@link CitationIndex} it runs on: self, repeated and unknown citations are left out.
+ */
+public class CitationRankTest {
+
+    private static final double DAMPING = 0.85;
+
+    public static void main(String[] args) {
+        checkIndex();
+
+        // a citation cycle: every publication is as influential as the others
+        CitationIndex cycle = index(List.of(List.of("b"), List.of("c"), List.of("a")));
+        CitationRank cycleRank = CitationRank.compute(cycle, 1);
+        for (String key : List.of("a", "b", "c"))
+            Check.checkEquals(1.0, cycleRank.scoreOf(key), 1e-9, "score of " + key + " in a cycle");
+
+        // random citations of earlier publications, many citing nothing
+        Random random = new Random(42);
+        List<List<String>> citations = new ArrayList<>();
+        int n = 2000;
+        for (int i = 0; i < n; i++) {
+            List<String> cites = new ArrayList<>();
+            for (int j = random.nextInt(3) == 0 ? 0 : random.nextInt(10); j > 0 && i > 0; j--)
+                cites.add(key(random.nextInt(i)));
+            citations.add(cites);
+        }
+        CitationIndex index = index(citations);
+        CitationRank rank = CitationRank.compute(index, DAMPING, 200, 1e-12, 1);
+        Check.check(rank.getNumIterations() < 200, "converged in " + rank.getNumIterations() + " iterations");
+
+        double[] expected = powerIteration(index, 1000);
+        double sum = 0;
+        for (int id = 0; id < n; id++) {
+            Check.checkEquals(expected[id], rank.scoreOf(id), 1e-8, "score of " + key(id));
+            sum += rank.scoreOf(id);
+        }
+        Check.checkEquals(1.0, sum / n, 1e-9, "mean score");
+
+        // the chunks are the same whatever the number of threads, so are the sums
+        CitationRank parallel = CitationRank.compute(index, DAMPING, 200, 1e-12, 4);
+        Check.checkEquals(rank.getNumIterations(), parallel.getNumIterations(), "iterations on 4 threads");
+        for (int id = 0; id < n; id++)
+            Check.checkEquals(rank.scoreOf(id), parallel.scoreOf(id), "score of " + id + " on 4 threads");
+
+        Check.checkEquals(0.0, rank.scoreOf("not/in/the/db"), "score of an unknown key");
+        Check.checkEquals(0, CitationRank.compute(index(List.of()), 2).getNumIterations(), "iterations without publications");
+    }
+
+    private static void checkIndex() {
+        // a cites b twice, itself, and an unknown key; c cites a and b
+        CitationIndex index = index(List.of(List.of("b", "b", "a", "unknown"), List.of(), List.of("a", "b")));
+        Check.checkEquals(3, index.size(), "publications");
+        Check.checkEquals(3, index.numberOfCitations(), "citations");
+        Check.checkEquals(1, index.inDegree("a"), "citers of a");
+        Check.checkEquals(2, index.inDegree("b"), "citers of b");
+        Check.checkEquals(0, index.inDegree("unknown"), "citers of an unknown key");
+        Check.checkEquals(List.of("a", "c"), index.citedBy("b", 10), "citers of b, in id order");
+        Check.checkEquals(List.of("a"), index.citedBy("b", 1), "first citer of b");
+    }
+
+    // the publication i has the i-th letter as key for the small indexes, key(i) otherwise
+    private static CitationIndex index(List<List<String>> citations) {
+        String[] keys = new String[citations.size()];
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = keys.length <= 26 ? String.valueOf((char) ('a' + i)) : key(i);
+        return CitationIndex.build(keys, citations::get);
+    }
+
+    // sorted like the ids
+    private static String key(int i) {
+        return String.format("p%05d", i);
+    }
+
+    // textbook PageRank, pushed along the citations, the rank of the dangling publications spread
+    // over all of them; scaled to a mean of 1
+    private static double[] powerIteration(CitationIndex index, int numIterations) {
+        int n = index.size();
+        List<List<Integer>> cited = new ArrayList<>();
+        for (int id = 0; id < n; id++)
+            cited.add(new ArrayList<>());
+        for (int id = 0; id < n; id++) {
+            for (int i = 0; i < index.inDegree(id); i++)
+                cited.get(index.citerAt(id, i)).add(id);
+        }
+        double[] ranks = new double[n];
+        Arrays.fill(ranks, 1.0 / n);
+        for (int iteration = 0; iteration < numIterations; iteration++) {
+            double[] next = new double[n];
+            double dangling = 0;
+            for (int id = 0; id < n; id++) {
+                if (cited.get(id).isEmpty())
+                    dangling += ranks[id];
+                for (int c : cited.get(id))
+                    next[c] += DAMPING * ranks[id] / cited.get(id).size();
+            }
+            for (int id = 0; id < n; id++)
+                next[id] += (1 - DAMPING) / n + DAMPING * dangling / n;
+            ranks = next;
+        }
+        for (int id = 0; id < n; id++)
+            ranks[id] *= n;
+        return ranks;
+    }
+}
@@ -0,0 +1,96 @@
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * {@link CompressedInput} recognizes a gzip dump by its content, decompresses it the same through
+ * {@link CompressedInput#open} and a named pipe, and reports a truncated gzip file through
+ * {@link CompressedInput.Pipe#checkWritten()} instead of a silently shorter dump. Also checks that
+ * an unchecked exception of the source of a {@link PipelinedInputStream} reaches its reader.
+ */
+public class CompressedInputTest {
+
+    public static void main(String[] args) throws Exception {
+        String xml = Check.fixture("records.xml");
+        byte[] content = Files.readAllBytes(Path.of(xml));
+        Path directory = Check.temporaryDirectory();
+        // no .gz suffix: the format comes from the magic bytes
+        Path gzip = directory.resolve("records.xml.data");
+        Path truncated = directory.resolve("truncated.xml.gz");
+        try {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzip))) {
+                out.write(content);
+            }
+            byte[] compressed = Files.readAllBytes(gzip);
+            Files.write(truncated, Arrays.copyOf(compressed, compressed.length / 2));
+
+            Check.checkEquals(CompressedInput.Format.NONE, CompressedInput.formatOf(xml), "format of the xml");
+            Check.checkEquals(CompressedInput.Format.GZIP, CompressedInput.formatOf(gzip.toString()), "format of the gzip");
+            try (InputStream in = CompressedInput.open(gzip.toString())) {
+                Check.check(Arrays.equals(content, in.readAllBytes()), "gzip content differs from the xml");
+            }
+
+            CompressedInput.Pipe pipe = CompressedInput.openAsPipe(gzip.toString());
+            Check.check(Arrays.equals(content, readPipe(pipe)), "piped content differs from the xml");
+            pipe.checkWritten();
+
+            pipe = CompressedInput.openAsPipe(truncated.toString());
+            readPipe(pipe);
+            try {
+                pipe.checkWritten();
+                throw new AssertionError("truncated gzip accepted");
+            } catch (IOException expected) {
+                Check.check(expected.getMessage().contains(truncated.toString()), "error names the file: " + expected.getMessage());
+            }
+        } finally {
+            Files.deleteIfExists(gzip);
+            Files.deleteIfExists(truncated);
+        }
+
+        // small buffers, so the failure comes after some chunks were read; it is at the end of a
+        // chunk since the bytes of a read that fails are lost
+        try (InputStream in = new PipelinedInputStream(new FailingInputStream(content, 640), "failing", 64, 2)) {
+            byte[] read = new byte[640];
+            Check.checkEquals(640, in.readNBytes(read, 0, 640), "bytes before the failure");
+            Check.check(Arrays.equals(Arrays.copyOf(content, 640), read), "bytes before the failure differ");
+            try {
+                in.read();
+                throw new AssertionError("failure of the source not thrown");
+            } catch (IOException expected) {
+                Check.check(expected.getCause() instanceof IllegalStateException, "cause: " + expected.getCause());
+            }
+        }
+    }
+
+    // the given bytes, then an unchecked exception like the one of a decompressor on a corrupt input
+    private static final class FailingInputStream extends InputStream {
+        private final byte[] bytes;
+        private final int failAt;
+        private int position = 0;
+
+        private FailingInputStream(byte[] bytes, int failAt) {
+            this.bytes = bytes;
+            this.failAt = failAt;
+        }
+
+        @Override
+        public int read() {
+            if (position == failAt)
+                throw new IllegalStateException("corrupt input at " + position);
+            return bytes[position++] & 0xFF;
+        }
+    }
+
+    // a named pipe can't seek, FileInputStream#readAllBytes would try to
+    private static byte[] readPipe(CompressedInput.Pipe pipe) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(pipe.getPath()))) {
+            return in.readAllBytes();
+        }
+    }
+}
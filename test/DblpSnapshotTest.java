@@ -0,0 +1,59 @@
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link DblpSnapshot}: a snapshot gives the records of the xml it was written from, seeks back
+ * to a position, and is no longer up to date once the xml changes.
+ */
+public class DblpSnapshotTest {
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Check.temporaryDirectory();
+        Path xml = directory.resolve("records.xml");
+        Files.copy(Path.of(Check.fixture("records.xml")), xml, StandardCopyOption.REPLACE_EXISTING);
+        String dtd = Check.fixture("records.dtd");
+        String snapshot = directory.resolve("records.snapshot").toString();
+
+        List<String> expected = Check.readAll(new DblpStreamReader(xml.toString(), dtd));
+        Check.check(expected.size() > 10, "the fixture has records");
+        try {
+            Check.check(!DblpSnapshot.isUpToDate(snapshot, xml.toString()), "no snapshot yet");
+            long numRecords;
+            try (DblpStreamReader source = new DblpStreamReader(xml.toString(), dtd)) {
+                numRecords = DblpSnapshot.write(source, xml.toString(), snapshot);
+            }
+            Check.checkEquals((long) expected.size(), numRecords, "records written");
+            Check.check(DblpSnapshot.isUpToDate(snapshot, xml.toString()), "snapshot up to date");
+            Check.checkSameRecords(expected, Check.readAll(DblpSnapshot.open(snapshot)), "snapshot records");
+
+            // skip, then seek back to the position of the 4th record
+            try (DblpSnapshotReader reader = DblpSnapshot.open(snapshot)) {
+                Check.checkEquals(3L, reader.skip(3), "skipped");
+                long position = reader.position();
+                List<String> rest = new ArrayList<>();
+                DblpRecord record;
+                while ((record = reader.next()) != null)
+                    rest.add(Check.describe(record));
+                Check.checkSameRecords(expected.subList(3, expected.size()), rest, "records after the skip");
+                Check.checkEquals(null, reader.next(), "record after the end");
+
+                reader.seek(position);
+                Check.checkEquals(expected.get(3), Check.describe(reader.next()), "record after the seek");
+                Check.checkEquals((long) expected.size() - 4, reader.skip(expected.size()), "records left after the seek");
+            }
+
+            // a dump with the same length but another modification time is another dump
+            File xmlFile = xml.toFile();
+            Check.check(xmlFile.setLastModified(xmlFile.lastModified() - 60_000), "xml touched");
+            Check.check(!DblpSnapshot.isUpToDate(snapshot, xml.toString()), "snapshot of a modified xml");
+        } finally {
+            Files.deleteIfExists(Path.of(snapshot));
+            Files.deleteIfExists(xml);
+        }
+        Check.checkEquals(List.of(), List.of(directory.toFile().list()), "files left");
+    }
+}
@@ -0,0 +1,79 @@
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link ExportDelta}: a second export against the manifest of a first one only writes the new
+ * and changed rows, and lists the rows gone in the delete files; a row is identified by its key,
+ * or by its start and end for a relationship file.
+ */
+public class ExportDeltaTest {
+
+    public static void main(String[] args) throws Exception {
+        Path first = Check.temporaryDirectory();
+        Path second = Check.temporaryDirectory();
+        try {
+            ExportDelta delta = new ExportDelta(first + File.separator, null, false);
+            Check.check(!delta.hasPreviousManifest(), "no previous manifest");
+            RowFormat authors = delta.forFile("authors.csv", ExportDelta.NODE);
+            RowFormat coauthors = delta.forFile("coauthor_relation.csv", ExportDelta.RELATIONSHIP);
+            RowFormat contexts = delta.forFile("contexts.csv", ExportDelta.NODE);
+            for (List<String> row : List.of(row("a", "Ann"), row("b", "Bob"), row("c", "Cid")))
+                Check.checkEquals(row, authors.format(row), "row of the first export");
+            for (List<String> row : List.of(row("a", "b", "3"), row("a", "c", "1")))
+                Check.checkEquals(row, coauthors.format(row), "row of the first export");
+            Check.checkEquals(row("conf/x", "X"), contexts.format(row("conf/x", "X")), "row of the first export");
+            Check.checkEquals(List.of(ExportDelta.MANIFEST_FILE_NAME), delta.finish(), "files of the first export");
+
+            String previousManifest = first.resolve(ExportDelta.MANIFEST_FILE_NAME).toString();
+            delta = new ExportDelta(second + File.separator, previousManifest, false);
+            Check.check(delta.hasPreviousManifest(), "previous manifest");
+            authors = delta.forFile("authors.csv", ExportDelta.NODE);
+            coauthors = delta.forFile("coauthor_relation.csv", ExportDelta.RELATIONSHIP);
+            // contexts.csv not written at all: its rows are not deleted
+
+            Check.checkEquals(null, authors.format(row("a", "Ann")), "unchanged author");
+            Check.checkEquals(row("b", "Bob Jr."), authors.format(row("b", "Bob Jr.")), "changed author");
+            Check.checkEquals(row("d", "Dee"), authors.format(row("d", "Dee")), "new author");
+            Check.checkEquals(null, authors.format(row("d", "Dee again")), "second row of the same key");
+            // the count is a property: same pair, changed row
+            Check.checkEquals(row("a", "b", "4"), coauthors.format(row("a", "b", "4")), "changed count");
+            Check.checkEquals(row("b", "d", "1"), coauthors.format(row("b", "d", "1")), "new pair");
+            Check.checkEquals(null, coauthors.format(row("b", "d", "2")), "second row of the same pair");
+
+            Check.checkEquals(List.of(ExportDelta.MANIFEST_FILE_NAME, "authors.delete.csv", "coauthor_relation.delete.csv"),
+                    delta.finish(), "files of the second export");
+            Check.checkEquals(List.of("c"), Files.readAllLines(second.resolve("authors.delete.csv")), "deleted authors");
+            Check.checkEquals(List.of("a,c"), Files.readAllLines(second.resolve("coauthor_relation.delete.csv")), "deleted pairs");
+
+            // the manifest of the second export is the base of the next one
+            String secondManifest = second.resolve(ExportDelta.MANIFEST_FILE_NAME).toString();
+            Path third = Check.temporaryDirectory();
+            try {
+                delta = new ExportDelta(third + File.separator, secondManifest, false);
+                authors = delta.forFile("authors.csv", ExportDelta.NODE);
+                for (List<String> row : List.of(row("a", "Ann"), row("b", "Bob Jr."), row("d", "Dee")))
+                    Check.checkEquals(null, authors.format(row), "unchanged row of the second export");
+                Check.checkEquals(List.of(ExportDelta.MANIFEST_FILE_NAME), delta.finish(), "files of the third export");
+            } finally {
+                deleteFiles(third);
+            }
+        } finally {
+            deleteFiles(first);
+            deleteFiles(second);
+        }
+    }
+
+    private static List<String> row(String... columns) {
+        return new ArrayList<>(Arrays.asList(columns));
+    }
+
+    private static void deleteFiles(Path directory) {
+        File[] files = directory.toFile().listFiles();
+        if (files != null)
+            Arrays.stream(files).forEach(File::delete);
+    }
+}
@@ -0,0 +1,35 @@
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * {@link LongHashSet} against a {@link HashSet}, through many resizes and with the value 0 that
+ * is stored apart.
+ */
+public class LongHashSetTest {
+
+    public static void main(String[] args) {
+        // from the smallest capacity, so the set grows many times
+        LongHashSet set = new LongHashSet(1);
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            // a small range half of the time, to add values already there
+            long value = random.nextBoolean() ? random.nextInt(1000) - 500 : random.nextLong();
+            Check.checkEquals(expected.add(value), set.add(value), "add " + value);
+        }
+        Check.checkEquals(expected.size(), set.size(), "size");
+        Check.check(expected.contains(0L), "0 was added");
+        for (long value : expected)
+            Check.check(set.contains(value), "contains " + value);
+        for (int i = 0; i < 10_000; i++) {
+            long value = random.nextLong();
+            Check.checkEquals(expected.contains(value), set.contains(value), "contains " + value);
+        }
+
+        set.clear();
+        Check.checkEquals(0, set.size(), "size after clear");
+        Check.check(!set.contains(0) && !set.contains(expected.iterator().next()), "empty after clear");
+        Check.check(set.add(0) && !set.add(0), "0 added once after clear");
+    }
+}
@@ -0,0 +1,49 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * {@link LongLongHashMap} against a {@link HashMap}, through many resizes and with the key 0 that
+ * is stored apart.
+ */
+public class LongLongHashMapTest {
+
+    public static void main(String[] args) {
+        // from the smallest capacity, so the map grows many times
+        LongLongHashMap map = new LongLongHashMap(1);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            // a small range half of the time, to overwrite keys already there
+            long key = random.nextBoolean() ? random.nextInt(1000) - 500 : random.nextLong();
+            long value = random.nextLong();
+            if (random.nextInt(4) == 0) {
+                expected.merge(key, value, Long::sum);
+                Check.checkEquals((long) expected.get(key), map.addTo(key, value), "addTo " + key);
+            } else {
+                expected.put(key, value);
+                map.put(key, value);
+            }
+        }
+        Check.checkEquals(expected.size(), map.size(), "size");
+        Check.check(expected.containsKey(0L), "key 0 was put");
+        for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+            Check.check(map.containsKey(entry.getKey()), "contains " + entry.getKey());
+            Check.checkEquals((long) entry.getValue(), map.getOrDefault(entry.getKey(), -1), "value of " + entry.getKey());
+        }
+        for (int i = 0; i < 10_000; i++) {
+            long key = random.nextLong();
+            if (!expected.containsKey(key))
+                Check.checkEquals(-1L, map.getOrDefault(key, -1), "value of missing " + key);
+        }
+
+        Map<Long, Long> visited = new HashMap<>();
+        map.forEach((key, value) -> Check.checkEquals(null, visited.put(key, value), "entry visited twice " + key));
+        Check.checkEquals(expected, visited, "entries visited");
+
+        map.clear();
+        Check.checkEquals(0, map.size(), "size after clear");
+        Check.check(!map.containsKey(0) && !map.containsKey(expected.keySet().iterator().next()), "empty after clear");
+        Check.checkEquals(5L, map.addTo(0, 5), "addTo 0 after clear");
+    }
+}
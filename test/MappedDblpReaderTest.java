@@ -0,0 +1,109 @@
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link MappedDblpReader} gives the records of {@link DblpStreamReader}: entities of the DTD,
+ * character references, CDATA sections, nested markup, comments, ISO-8859-1 and UTF-8 dumps. Also
+ * checks the fields left out of {@code fieldTags}, seeking back to a position and the error on an
+ * undeclared entity.
+ */
+public class MappedDblpReaderTest {
+
+    public static void main(String[] args) throws Exception {
+        String xml = Check.fixture("records.xml");
+        String dtd = Check.fixture("records.dtd");
+        List<String> expected = Check.readAll(new DblpStreamReader(xml, dtd));
+        Check.checkSameRecords(expected, Check.readAll(new MappedDblpReader(xml, dtd)), "mapped records");
+
+        // the decoding itself, not only the agreement of the two readers
+        Check.checkEquals("On x2 < y: a \"study\" of 'bounds'", field(xml, dtd, "conf/test/MullerS20", "title"), "entities and nested markup");
+        Check.checkEquals("Raw <markup> & \"quotes\" in CDATA and text after it", field(xml, dtd, "conf/test/Godel20", "title"), "CDATA");
+        Check.checkEquals("Caf\u00e9 Algebra: numeric <references>.", field(xml, dtd, "journals/tj/Smith19", "title"), "character references");
+        Check.checkEquals("J\u00fcrgen M\u00fcller 0001", field(xml, dtd, "phd/Muller17", "author"), "DTD entities");
+
+        // only the decoded fields
+        Set<String> fieldTags = Set.of("author", "year", "crossref");
+        List<String> expectedFields = new ArrayList<>();
+        try (DblpStreamReader reader = new DblpStreamReader(xml, dtd)) {
+            DblpRecord record;
+            while ((record = reader.next()) != null)
+                expectedFields.add(describe(record, fieldTags));
+        }
+        Check.checkSameRecords(expectedFields, Check.readAll(new MappedDblpReader(xml, dtd, fieldTags)), "records with some fields");
+
+        checkSeek(xml, dtd, expected);
+
+        Path directory = Check.temporaryDirectory();
+        Path copy = directory.resolve("records.xml");
+        try {
+            // UTF-8 with non-ASCII chars in the text, not only in references
+            String utf8 = Files.readString(Path.of(xml), StandardCharsets.ISO_8859_1)
+                    .replace("encoding=\"ISO-8859-1\"", "encoding=\"UTF-8\"")
+                    .replace("Ann Smith", "\u00c5nn Sm\u00eff\u00fe \u30c7\u30fc\u30bf \ud83d\ude00");
+            Files.writeString(copy, utf8, StandardCharsets.UTF_8);
+            Check.checkSameRecords(Check.readAll(new DblpStreamReader(copy.toString(), dtd)),
+                    Check.readAll(new MappedDblpReader(copy.toString(), dtd)), "mapped UTF-8 records");
+
+            Files.writeString(copy, ParallelDblpReaderTest.copies(xml, 200), StandardCharsets.ISO_8859_1);
+            Check.checkSameRecords(Check.readAll(new DblpStreamReader(copy.toString(), dtd)),
+                    Check.readAll(new MappedDblpReader(copy.toString(), dtd)), "mapped copies");
+
+            Files.writeString(copy, Files.readString(Path.of(xml), StandardCharsets.ISO_8859_1)
+                    .replace("<title>Thesis</title>", "<title>&nosuch; Thesis</title>"), StandardCharsets.ISO_8859_1);
+            try {
+                Check.readAll(new MappedDblpReader(copy.toString(), dtd));
+                throw new AssertionError("undeclared entity accepted");
+            } catch (XMLStreamException expectedError) {
+                Check.check(expectedError.getMessage().contains("nosuch"), "error names the entity: " + expectedError.getMessage());
+            }
+        } finally {
+            Files.deleteIfExists(copy);
+        }
+    }
+
+    private static void checkSeek(String xml, String dtd, List<String> expected) throws Exception {
+        try (MappedDblpReader reader = new MappedDblpReader(xml, dtd)) {
+            Check.checkEquals(3L, reader.skip(3), "skipped");
+            long position = reader.position();
+            Check.checkEquals(expected.get(3), Check.describe(reader.next()), "record after the skip");
+            Check.checkEquals((long) expected.size() - 4, reader.skip(expected.size()), "records left");
+            Check.checkEquals(null, reader.next(), "record after the end");
+
+            reader.seek(position);
+            Check.checkEquals(expected.get(3), Check.describe(reader.next()), "record after the seek");
+            try {
+                reader.seek(0);
+                throw new AssertionError("seek into the prologue accepted");
+            } catch (IOException expectedError) {
+            }
+        }
+    }
+
+    private static String field(String xml, String dtd, String key, String fieldTag) throws Exception {
+        try (MappedDblpReader reader = new MappedDblpReader(xml, dtd)) {
+            DblpRecord record;
+            while ((record = reader.next()) != null) {
+                if (record.getKey().equals(key))
+                    return record.getField(fieldTag);
+            }
+        }
+        throw new AssertionError("no record " + key);
+    }
+
+    // Check#describe with only the given fields
+    private static String describe(DblpRecord record, Set<String> fieldTags) {
+        StringBuilder description = new StringBuilder();
+        description.append(record.getTag()).append(' ').append(record.getKey()).append(' ').append(record.getMdate());
+        for (int i = 0; i < record.numberOfFields(); i++) {
+            if (fieldTags.contains(record.fieldTagAt(i)))
+                description.append(" | ").append(record.fieldTagAt(i)).append('=').append(record.fieldValueAt(i));
+        }
+        return description.toString();
+    }
+}
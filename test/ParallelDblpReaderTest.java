@@ -0,0 +1,59 @@
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * {@link ParallelDblpReader} gives the records of {@link DblpStreamReader}, in the same order,
+ * whatever the chunks the dump is cut in (down to one record per chunk) and the number of threads.
+ * A dump of copies of the fixture records, larger than the 64 KiB window the cut points are
+ * searched in, checks the tags across two windows, and a dump whose record start tags are followed
+ * by a newline or a tab checks that any whitespace ends a tag name.
+ */
+public class ParallelDblpReaderTest {
+
+    public static void main(String[] args) throws Exception {
+        String dtd = Check.fixture("records.dtd");
+        checkSameRecords(Check.fixture("records.xml"), dtd);
+
+        Path directory = Check.temporaryDirectory();
+        Path copies = directory.resolve("copies.xml");
+        try {
+            Files.writeString(copies, copies(Check.fixture("records.xml"), 400), StandardCharsets.ISO_8859_1);
+            Check.check(Files.size(copies) > 3 * (1 << 16), "the copies span several windows");
+            checkSameRecords(copies.toString(), dtd);
+
+            String dump = Files.readString(Path.of(Check.fixture("records.xml")), StandardCharsets.ISO_8859_1);
+            Files.writeString(copies, dump.replace("<article mdate", "<article\n  mdate").replace("<www mdate", "<www\tmdate"),
+                    StandardCharsets.ISO_8859_1);
+            checkSameRecords(copies.toString(), dtd);
+        } finally {
+            Files.deleteIfExists(copies);
+        }
+    }
+
+    private static void checkSameRecords(String xml, String dtd) throws Exception {
+        List<String> expected = Check.readAll(new DblpStreamReader(xml, dtd));
+        for (int chunkSize : new int[]{1, 100, 1000, 70_000, ParallelDblpReader.DEFAULT_CHUNK_SIZE}) {
+            for (int numThreads : new int[]{1, 3}) {
+                ParallelDblpReader reader = new ParallelDblpReader(xml, dtd, numThreads, chunkSize);
+                String what = xml + ", chunks of " + chunkSize + " bytes on " + numThreads + " threads";
+                if (chunkSize == 1)
+                    Check.checkEquals(expected.size(), reader.numberOfChunks(), what + ", one chunk per record");
+                Check.checkSameRecords(expected, Check.readAll(reader), what);
+            }
+        }
+    }
+
+    // the records of the dump repeated, with distinct keys
+    static String copies(String xml, int numCopies) throws Exception {
+        String dump = Files.readString(Path.of(xml), StandardCharsets.ISO_8859_1);
+        int recordsStart = dump.indexOf("<dblp>") + "<dblp>".length();
+        int recordsEnd = dump.lastIndexOf("</dblp>");
+        String records = dump.substring(recordsStart, recordsEnd);
+        StringBuilder copies = new StringBuilder(dump.substring(0, recordsStart));
+        for (int i = 0; i < numCopies; i++)
+            copies.append(records.replaceAll("key=\"([^\"]*)\"", "key=\"$1/" + i + "\""));
+        return copies.append(dump.substring(recordsEnd)).toString();
+    }
+}
@@ -0,0 +1,114 @@
+import org.dblp.mmdb.Person;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Random;
+
+/**
+ * {@link SeparationFinder#shortestPath}: on random coauthor graphs the bidirectional BFS finds a
+ * path of the length a plain BFS finds, made of coauthor pairs, and none between two components.
+ * Also checks the {@link CoauthorGraph} it runs on: distinct pairs and their weights.
+ */
+public class SeparationFinderTest {
+
+    public static void main(String[] args) {
+        checkGraph();
+
+        Random random = new Random(42);
+        for (int round = 0; round < 20; round++) {
+            // sparse enough to have long paths and several components
+            int n = 50 + random.nextInt(300);
+            int numPairs = n + random.nextInt(n);
+            long[] pairs = new long[numPairs];
+            for (int i = 0; i < numPairs; i++) {
+                int a = random.nextInt(n);
+                int b = random.nextInt(n);
+                if (a == b)
+                    b = (a + 1) % n;
+                pairs[i] = pair(a, b);
+            }
+            CoauthorGraph graph = graph(n, pairs);
+            SeparationFinder finder = new SeparationFinder(graph);
+            for (int query = 0; query < 200; query++) {
+                int source = random.nextInt(n);
+                int target = random.nextInt(n);
+                int distance = bfsDistance(graph, source, target);
+                int[] path = finder.shortestPath(source, target);
+                String what = "round " + round + ", " + source + " -> " + target;
+                if (distance < 0) {
+                    Check.checkEquals(null, path, what + " not connected");
+                    continue;
+                }
+                Check.check(path != null, what + ": no path, distance " + distance);
+                Check.checkEquals(distance, path.length - 1, what + " length of " + Arrays.toString(path));
+                Check.checkEquals(source, path[0], what + " start");
+                Check.checkEquals(target, path[path.length - 1], what + " end");
+                for (int i = 0; i + 1 < path.length; i++)
+                    Check.check(adjacent(graph, path[i], path[i + 1]), what + ": " + path[i] + " and " + path[i + 1] + " are not coauthors");
+            }
+        }
+    }
+
+    private static void checkGraph() {
+        // 0-1 twice (two shared publications), 1-2, 2-3, 4 alone
+        CoauthorGraph graph = graph(5, new long[]{pair(0, 1), pair(2, 3), pair(0, 1), pair(1, 2)});
+        Check.checkEquals(5, graph.size(), "persons");
+        Check.checkEquals(3, graph.numberOfEdges(), "distinct pairs");
+        Check.checkEquals(2, graph.degree(1), "coauthors of 1");
+        Check.checkEquals(0, graph.neighborAt(1, 0), "first coauthor of 1, ascending ids");
+        Check.checkEquals(2, graph.weightAt(1, 0), "publications 1 shares with 0");
+        Check.checkEquals(1, graph.weightAt(1, 1), "publications 1 shares with 2");
+        Check.checkEquals(0, graph.degree(4), "coauthors of 4");
+        Check.checkEquals(3, graph.idOf("p00003"), "id of p00003");
+        Check.checkEquals(-1, graph.idOf("p99999"), "id of an unknown PID");
+
+        SeparationFinder finder = new SeparationFinder(graph);
+        Check.checkEquals("[2]", Arrays.toString(finder.shortestPath(2, 2)), "path to itself");
+        Check.checkEquals("[0, 1, 2, 3]", Arrays.toString(finder.shortestPath(0, 3)), "path 0 -> 3");
+        Check.checkEquals("[3, 2, 1, 0]", Arrays.toString(finder.shortestPath(3, 0)), "path 3 -> 0");
+        Check.checkEquals(null, finder.shortestPath(0, 4), "path to an isolated person");
+    }
+
+    // persons p00000, p00001 ..., in PID order so that person i has id i
+    private static CoauthorGraph graph(int n, long[] pairs) {
+        String[] pids = new String[n];
+        for (int i = 0; i < n; i++)
+            pids[i] = String.format("p%05d", i);
+        return CoauthorGraph.fromPairs(new Person[n], pids, pairs.clone(), pairs.length);
+    }
+
+    private static long pair(int a, int b) {
+        return ((long) Math.min(a, b) << 32) | Math.max(a, b);
+    }
+
+    private static boolean adjacent(CoauthorGraph graph, int a, int b) {
+        for (int i = 0; i < graph.degree(a); i++) {
+            if (graph.neighborAt(a, i) == b)
+                return true;
+        }
+        return false;
+    }
+
+    // plain BFS from the source, -1 if the target is not reached
+    private static int bfsDistance(CoauthorGraph graph, int source, int target) {
+        int[] dist = new int[graph.size()];
+        Arrays.fill(dist, -1);
+        dist[source] = 0;
+        Deque<Integer> queue = new ArrayDeque<>();
+        queue.add(source);
+        while (!queue.isEmpty()) {
+            int u = queue.poll();
+            if (u == target)
+                return dist[u];
+            for (int i = 0; i < graph.degree(u); i++) {
+                int v = graph.neighborAt(u, i);
+                if (dist[v] < 0) {
+                    dist[v] = dist[u] + 1;
+                    queue.add(v);
+                }
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,42 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * {@link StringIntHashMap} against a {@link HashMap}, through many resizes and with keys of the
+ * same hash code.
+ */
+public class StringIntHashMapTest {
+
+    public static void main(String[] args) {
+        // from the smallest capacity, so the map grows many times
+        StringIntHashMap map = new StringIntHashMap(1);
+        Map<String, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            // PID-like keys, a small range half of the time to overwrite keys already there
+            String key = random.nextBoolean() ? random.nextInt(1000) + "/" + random.nextInt(10) : random.nextInt() + "/" + i;
+            int value = random.nextInt();
+            expected.put(key, value);
+            map.put(key, value);
+        }
+        // "Aa" and "BB" have the same hash code, so do their concatenations
+        for (String key : new String[]{"Aa", "BB", "AaAa", "AaBB", "BBAa", "BBBB"}) {
+            expected.put(key, key.length());
+            map.put(key, key.length());
+        }
+        Check.checkEquals(expected.size(), map.size(), "size");
+        for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+            Check.check(map.containsKey(entry.getKey()), "contains " + entry.getKey());
+            Check.checkEquals((int) entry.getValue(), map.getOrDefault(entry.getKey(), -1), "value of " + entry.getKey());
+        }
+        for (String key : new String[]{"", "AaAaAa", "missing/0", "1/99"})
+            Check.checkEquals(-1, map.getOrDefault(key, -1), "value of missing " + key);
+
+        map.clear();
+        Check.checkEquals(0, map.size(), "size after clear");
+        Check.check(!map.containsKey("Aa"), "empty after clear");
+        map.put("Aa", 7);
+        Check.checkEquals(7, map.getOrDefault("Aa", -1), "value put after clear");
+    }
+}